@@ -81,6 +81,7 @@ public class Config {
 		public final EntityBackpackAdditionsConfig entityBackpackAdditions;
 		public final ForgeConfigSpec.BooleanValue chestLootEnabled;
 		public final ToolSwapperUpgradeConfig toolSwapperUpgrade;
+		public final BackpackStorageConfig backpackStorage;
 
 		@SuppressWarnings("unused") //need the Event parameter for forge reflection to understand what event this listens to
 		public void onConfigReload(ModConfig.Reloading event) {
@@ -121,6 +122,7 @@ public class Config {
 			entityBackpackAdditions = new EntityBackpackAdditionsConfig(builder);
 
 			chestLootEnabled = builder.comment("Turns on/off loot added to various vanilla chest loot tables").define("chestLootEnabled", true);
+			backpackStorage = new BackpackStorageConfig(builder);
 
 			builder.pop();
 		}
@@ -222,6 +224,26 @@ public class Config {
 			}
 		}
 
+		public static class BackpackStorageConfig {
+			public final ForgeConfigSpec.BooleanValue shardedContents;
+			public final ForgeConfigSpec.BooleanValue lazyLoadedContents;
+			public final ForgeConfigSpec.IntValue maxLoadedBackpacks;
+			public final ForgeConfigSpec.BooleanValue asyncSaving;
+
+			protected BackpackStorageConfig(ForgeConfigSpec.Builder builder) {
+				builder.comment("Backpack Storage" + SETTINGS).push("backpackStorage");
+				shardedContents = builder.comment("Saves contents of each backpack to its own file in data/sophisticatedbackpacks folder of the world so that only backpacks that changed get written on world save. Existing contents get migrated when world loads after this is changed")
+						.define("shardedContents", false);
+				lazyLoadedContents = builder.comment("Loads contents of backpack only when they are first needed instead of when world loads. Only works together with shardedContents")
+						.define("lazyLoadedContents", false);
+				maxLoadedBackpacks = builder.comment("Number of backpacks whose contents are kept loaded when lazyLoadedContents is on, contents of least recently used backpacks get saved and unloaded above this")
+						.defineInRange("maxLoadedBackpacks", 1000, 16, 100000);
+				asyncSaving = builder.comment("Takes a copy of changed backpack contents on world save and writes them to disk on a background thread instead of server thread. Only works together with shardedContents")
+						.define("asyncSaving", false);
+				builder.pop();
+			}
+		}
+
 		public static class ToolSwapperUpgradeConfig {
 			public final ForgeConfigSpec.IntValue slotsInRow;
 
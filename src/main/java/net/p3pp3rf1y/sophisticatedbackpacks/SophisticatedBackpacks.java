@@ -12,8 +12,10 @@ import net.minecraftforge.fml.common.Mod;
 import net.minecraftforge.fml.config.ModConfig;
 import net.minecraftforge.fml.event.lifecycle.FMLCommonSetupEvent;
 import net.minecraftforge.fml.event.server.FMLServerStartedEvent;
+import net.minecraftforge.fml.event.server.FMLServerStoppedEvent;
 import net.minecraftforge.fml.javafmlmod.FMLJavaModLoadingContext;
 import net.p3pp3rf1y.sophisticatedbackpacks.api.CapabilityBackpackWrapper;
+import net.p3pp3rf1y.sophisticatedbackpacks.backpack.ShardedBackpackContents;
 import net.p3pp3rf1y.sophisticatedbackpacks.client.ClientProxy;
 import net.p3pp3rf1y.sophisticatedbackpacks.command.SBPCommand;
 import net.p3pp3rf1y.sophisticatedbackpacks.common.CommonProxy;
@@ -47,6 +49,7 @@ public class SophisticatedBackpacks {
 
 		IEventBus eventBus = MinecraftForge.EVENT_BUS;
 		eventBus.addListener(SophisticatedBackpacks::serverStarted);
+		eventBus.addListener(SophisticatedBackpacks::serverStopped);
 		eventBus.addListener(SophisticatedBackpacks::registerCommands);
 	}
 
@@ -65,6 +68,11 @@ public class SophisticatedBackpacks {
 		}
 	}
 
+	@SuppressWarnings("unused") //need the Event parameter for forge reflection to understand what event this listens to
+	private static void serverStopped(FMLServerStoppedEvent event) {
+		ShardedBackpackContents.awaitPendingSaves();
+	}
+
 	private static void registerCommands(RegisterCommandsEvent event) {
 		SBPCommand.register(event.getDispatcher());
 	}
@@ -47,7 +47,6 @@ import net.p3pp3rf1y.sophisticatedbackpacks.Config;
 import net.p3pp3rf1y.sophisticatedbackpacks.SophisticatedBackpacks;
 import net.p3pp3rf1y.sophisticatedbackpacks.api.CapabilityBackpackWrapper;
 import net.p3pp3rf1y.sophisticatedbackpacks.api.IBackpackWrapper;
-import net.p3pp3rf1y.sophisticatedbackpacks.api.ITickableUpgrade;
 import net.p3pp3rf1y.sophisticatedbackpacks.backpack.wrapper.BackpackWrapper;
 import net.p3pp3rf1y.sophisticatedbackpacks.common.gui.BackpackContainer;
 import net.p3pp3rf1y.sophisticatedbackpacks.common.gui.BackpackContext;
@@ -282,10 +281,7 @@ public class BackpackItem extends ItemBase {
 			return;
 		}
 		PlayerEntity player = (PlayerEntity) entityIn;
-		stack.getCapability(CapabilityBackpackWrapper.getCapabilityInstance()).ifPresent(
-				wrapper -> wrapper.getUpgradeHandler().getWrappersThatImplement(ITickableUpgrade.class)
-						.forEach(upgrade -> upgrade.tick(player, player.world, player.getPosition()))
-		);
+		stack.getCapability(CapabilityBackpackWrapper.getCapabilityInstance()).ifPresent(wrapper -> BackpackTickScheduler.scheduleHeldBackpack(wrapper, player));
 		super.inventoryTick(stack, worldIn, entityIn, itemSlot, isSelected);
 	}
 
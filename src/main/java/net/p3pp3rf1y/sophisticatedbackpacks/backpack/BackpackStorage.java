@@ -1,5 +1,7 @@
 package net.p3pp3rf1y.sophisticatedbackpacks.backpack;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import net.minecraft.nbt.CompoundNBT;
 import net.minecraft.nbt.INBT;
 import net.minecraft.nbt.ListNBT;
@@ -12,26 +14,69 @@ import net.minecraft.world.storage.WorldSavedData;
 import net.minecraftforge.common.util.Constants;
 import net.minecraftforge.fml.common.thread.SidedThreadGroups;
 import net.minecraftforge.fml.server.ServerLifecycleHooks;
+import net.p3pp3rf1y.sophisticatedbackpacks.Config;
 import net.p3pp3rf1y.sophisticatedbackpacks.SophisticatedBackpacks;
+import net.p3pp3rf1y.sophisticatedbackpacks.backpack.wrapper.BackpackInventoryHandler;
 import net.p3pp3rf1y.sophisticatedbackpacks.backpack.wrapper.BackpackSettingsHandler;
+import net.p3pp3rf1y.sophisticatedbackpacks.backpack.wrapper.BackpackUpgradeHandler;
+import net.p3pp3rf1y.sophisticatedbackpacks.backpack.wrapper.ISharedContentsHandler;
 
+import javax.annotation.Nullable;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 public class BackpackStorage extends WorldSavedData {
 	private static final String SAVED_DATA_NAME = SophisticatedBackpacks.MOD_ID;
+	private static final String SHARDED_CONTENTS_TAG = "shardedContents";
+	private static final int MAX_CLIENT_CACHED_BACKPACKS = 64;
 
-	private final Map<UUID, CompoundNBT> backpackContents = new HashMap<>();
-	private static final BackpackStorage clientStorageCopy = new BackpackStorage();
+	//access ordered so that iteration starts with the least recently used contents when unloading cold backpacks
+	private final Map<UUID, CompoundNBT> backpackContents = new LinkedHashMap<>(16, 0.75f, true);
+	private static final BackpackStorage clientStorageCopy = new BackpackStorage(null, false, false, MAX_CLIENT_CACHED_BACKPACKS, true);
 	private final Map<UUID, AccessLogRecord> accessLogRecords = new HashMap<>();
+	@Nullable
+	private final ShardedBackpackContents shardedContents;
+	private final boolean saveSharded;
+	private final Set<UUID> dirtyBackpackContents = new HashSet<>();
+	private final Set<UUID> removedBackpackContents = new HashSet<>();
+	private final boolean lazyLoaded;
+	//client copy only caches contents of backpacks that the player recently interacted with
+	private final boolean boundedCache;
+	private final int maxLoadedBackpacks;
+	private final Set<UUID> savedShardUuids = new HashSet<>();
+	//contents moved from the list in main file to shards need to be on disk before main file without the list is
+	private boolean migratingToShards = false;
+	//unloaded contents may still be referenced by live inventory handlers, these need to get the same instance back when loaded again
+	private final Cache<UUID, CompoundNBT> unloadedBackpackContents = CacheBuilder.newBuilder().weakValues().build();
+	private final BackpackStorageStatistics statistics = new BackpackStorageStatistics();
+	//changes with every change of contents so that clients can be told that what they have of the contents is still current
+	private final Map<UUID, Integer> contentsVersions = new HashMap<>();
+	//live handlers are shared by all wrappers of the same contents so that every copy of a backpack stack doesn't deserialize the contents again
+	//and they never get replaced while in use, instead these are reloaded in place when contents change under them
+	private final Cache<UUID, BackpackInventoryHandler> inventoryHandlers = CacheBuilder.newBuilder().weakValues().build();
+	private final Cache<UUID, BackpackUpgradeHandler> upgradeHandlers = CacheBuilder.newBuilder().weakValues().build();
 
-	private BackpackStorage() {
+	BackpackStorage(@Nullable ShardedBackpackContents shardedContents, boolean saveSharded, boolean lazyLoaded, int maxLoadedBackpacks, boolean boundedCache) {
 		super(SAVED_DATA_NAME);
+		this.shardedContents = shardedContents;
+		this.saveSharded = saveSharded;
+		this.lazyLoaded = saveSharded && lazyLoaded;
+		this.boundedCache = boundedCache;
+		this.maxLoadedBackpacks = maxLoadedBackpacks;
+	}
+
+	private static BackpackStorage create(MinecraftServer server) {
+		Config.Common.BackpackStorageConfig config = Config.COMMON.backpackStorage;
+		return new BackpackStorage(ShardedBackpackContents.forServer(server, config.asyncSaving.get()), config.shardedContents.get(), config.lazyLoadedContents.get(), config.maxLoadedBackpacks.get(), false);
 	}
 
 	public static BackpackStorage get() {
@@ -41,7 +86,7 @@ public class BackpackStorage extends WorldSavedData {
 				ServerWorld overworld = server.getWorld(World.OVERWORLD);
 				//noinspection ConstantConditions - by this time overworld is loaded
 				DimensionSavedDataManager storage = overworld.getSavedData();
-				return storage.getOrCreate(BackpackStorage::new, SAVED_DATA_NAME);
+				return storage.getOrCreate(() -> create(server), SAVED_DATA_NAME);
 			}
 		}
 		return clientStorageCopy;
@@ -61,6 +106,31 @@ public class BackpackStorage extends WorldSavedData {
 	}
 
 	private void readBackpackContents(CompoundNBT nbt) {
+		boolean contentsInShards = nbt.getBoolean(SHARDED_CONTENTS_TAG);
+		if (contentsInShards && shardedContents != null) {
+			savedShardUuids.addAll(shardedContents.getBackpackUuids());
+			if (!lazyLoaded) {
+				savedShardUuids.forEach(uuid -> shardedContents.load(uuid).ifPresent(contents -> backpackContents.put(uuid, contents)));
+			}
+		} else {
+			readBackpackContentsList(nbt);
+		}
+
+		if (contentsInShards != saveSharded) {
+			migrateBackpackContents();
+		}
+	}
+
+	private void migrateBackpackContents() {
+		if (saveSharded && shardedContents != null) {
+			migratingToShards = true;
+			dirtyBackpackContents.addAll(backpackContents.keySet());
+			shardedContents.getBackpackUuids().stream().filter(uuid -> !backpackContents.containsKey(uuid)).forEach(removedBackpackContents::add);
+		}
+		markDirty();
+	}
+
+	private void readBackpackContentsList(CompoundNBT nbt) {
 		for (INBT n : nbt.getList("backpackContents", Constants.NBT.TAG_COMPOUND)) {
 			CompoundNBT uuidContentsPair = (CompoundNBT) n;
 			UUID uuid = NBTUtil.readUniqueId(Objects.requireNonNull(uuidContentsPair.get("uuid")));
@@ -72,11 +142,83 @@ public class BackpackStorage extends WorldSavedData {
 	@Override
 	public CompoundNBT write(CompoundNBT compound) {
 		CompoundNBT ret = new CompoundNBT();
-		writeBackpackContents(ret);
+		int changedBackpacks = dirtyBackpackContents.size();
+		int backpacksWritten;
+		if (saveSharded && shardedContents != null) {
+			backpacksWritten = saveChangedShards(shardedContents);
+			ret.putBoolean(SHARDED_CONTENTS_TAG, true);
+		} else {
+			writeBackpackContents(ret);
+			backpacksWritten = backpackContents.size();
+			dirtyBackpackContents.clear();
+		}
 		writeAccessLogs(ret);
+		statistics.onSave(changedBackpacks, backpacksWritten);
 		return ret;
 	}
 
+	private int saveChangedShards(ShardedBackpackContents shards) {
+		removedBackpackContents.forEach(shards::delete);
+		removedBackpackContents.clear();
+
+		int backpacksWritten = 0;
+		for (UUID backpackUuid : dirtyBackpackContents) {
+			CompoundNBT contents = backpackContents.get(backpackUuid);
+			if (contents != null) {
+				saveShard(shards, backpackUuid, contents);
+				backpacksWritten++;
+			}
+		}
+		dirtyBackpackContents.clear();
+		unloadColdBackpackContents();
+		migratingToShards = false;
+		return backpacksWritten;
+	}
+
+	private void saveShard(ShardedBackpackContents shards, UUID backpackUuid, CompoundNBT contents) {
+		if (migratingToShards) {
+			shards.saveNow(backpackUuid, contents);
+		} else {
+			shards.save(backpackUuid, contents);
+		}
+		savedShardUuids.add(backpackUuid);
+	}
+
+	private void unloadColdBackpackContents() {
+		if (boundedCache) {
+			evictLeastRecentlyUsedContents();
+			return;
+		}
+		if (!lazyLoaded || shardedContents == null) {
+			return;
+		}
+
+		Iterator<Map.Entry<UUID, CompoundNBT>> it = backpackContents.entrySet().iterator();
+		while (backpackContents.size() > maxLoadedBackpacks && it.hasNext()) {
+			Map.Entry<UUID, CompoundNBT> entry = it.next();
+			UUID backpackUuid = entry.getKey();
+			if (dirtyBackpackContents.remove(backpackUuid)) {
+				saveShard(shardedContents, backpackUuid, entry.getValue());
+				statistics.onBackpackWrittenOnUnload();
+			}
+			unloadedBackpackContents.put(backpackUuid, entry.getValue());
+			it.remove();
+		}
+	}
+
+	private void evictLeastRecentlyUsedContents() {
+		Iterator<Map.Entry<UUID, CompoundNBT>> it = backpackContents.entrySet().iterator();
+		while (backpackContents.size() > maxLoadedBackpacks && it.hasNext()) {
+			Map.Entry<UUID, CompoundNBT> entry = it.next();
+			UUID backpackUuid = entry.getKey();
+			dirtyBackpackContents.remove(backpackUuid);
+			contentsVersions.remove(backpackUuid);
+			updatedBackpackSettingsFlags.remove(backpackUuid);
+			unloadedBackpackContents.put(backpackUuid, entry.getValue());
+			it.remove();
+		}
+	}
+
 	private void writeBackpackContents(CompoundNBT ret) {
 		ListNBT backpackContentsNbt = new ListNBT();
 		for (Map.Entry<UUID, CompoundNBT> entry : backpackContents.entrySet()) {
@@ -97,10 +239,94 @@ public class BackpackStorage extends WorldSavedData {
 	}
 
 	public CompoundNBT getOrCreateBackpackContents(UUID backpackUuid) {
-		return backpackContents.computeIfAbsent(backpackUuid, uuid -> {
-			markDirty();
-			return new CompoundNBT();
-		});
+		CompoundNBT contents = backpackContents.get(backpackUuid);
+		if (contents != null) {
+			return contents;
+		}
+
+		Optional<CompoundNBT> loadedContents = loadBackpackContents(backpackUuid);
+		contents = loadedContents.orElseGet(CompoundNBT::new);
+		backpackContents.put(backpackUuid, contents);
+		if (!loadedContents.isPresent()) {
+			markBackpackContentsDirty(backpackUuid);
+			reloadSharedHandlers(backpackUuid, contents);
+		}
+		unloadColdBackpackContents();
+		return contents;
+	}
+
+	private Optional<CompoundNBT> loadBackpackContents(UUID backpackUuid) {
+		CompoundNBT contents = unloadedBackpackContents.getIfPresent(backpackUuid);
+		if (contents != null) {
+			return Optional.of(contents);
+		}
+		if (!lazyLoaded || shardedContents == null) {
+			return Optional.empty();
+		}
+		return savedShardUuids.contains(backpackUuid) ? shardedContents.load(backpackUuid) : Optional.empty();
+	}
+
+	public BackpackInventoryHandler getOrCreateInventoryHandler(UUID backpackUuid, int numberOfSlots, Function<CompoundNBT, BackpackInventoryHandler> createHandler) {
+		return getOrCreateSharedHandler(inventoryHandlers, backpackUuid, numberOfSlots, createHandler);
+	}
+
+	public BackpackUpgradeHandler getOrCreateUpgradeHandler(UUID backpackUuid, int numberOfSlots, Function<CompoundNBT, BackpackUpgradeHandler> createHandler) {
+		return getOrCreateSharedHandler(upgradeHandlers, backpackUuid, numberOfSlots, createHandler);
+	}
+
+	private <T extends ISharedContentsHandler> T getOrCreateSharedHandler(Cache<UUID, T> handlers, UUID backpackUuid, int numberOfSlots, Function<CompoundNBT, T> createHandler) {
+		CompoundNBT contents = getOrCreateBackpackContents(backpackUuid);
+		if (boundedCache) {
+			//client contents get replaced by what server sends so handlers there are kept per wrapper
+			return createHandler.apply(contents);
+		}
+		T handler = handlers.getIfPresent(backpackUuid);
+		if (handler == null) {
+			handler = createHandler.apply(contents);
+			handlers.put(backpackUuid, handler);
+		} else if (!handler.isBackedBy(contents) || handler.getSlots() != numberOfSlots) {
+			handler.reload(contents, numberOfSlots);
+		}
+		return handler;
+	}
+
+	private void reloadSharedHandlers(UUID backpackUuid, CompoundNBT contents) {
+		reloadSharedHandler(inventoryHandlers, backpackUuid, contents);
+		reloadSharedHandler(upgradeHandlers, backpackUuid, contents);
+	}
+
+	private <T extends ISharedContentsHandler> void reloadSharedHandler(Cache<UUID, T> handlers, UUID backpackUuid, CompoundNBT contents) {
+		T handler = handlers.getIfPresent(backpackUuid);
+		if (handler != null) {
+			handler.reload(contents, handler.getSlots());
+		}
+	}
+
+	public void markBackpackContentsDirty(UUID backpackUuid) {
+		if ((lazyLoaded || boundedCache) && !backpackContents.containsKey(backpackUuid)) {
+			//contents got unloaded while something still held a reference to them and changed them, so they need to be loaded back to get saved
+			loadBackpackContents(backpackUuid).ifPresent(contents -> backpackContents.put(backpackUuid, contents));
+		}
+		dirtyBackpackContents.add(backpackUuid);
+		incrementContentsVersion(backpackUuid);
+		statistics.onDirtyMark();
+		markDirty();
+	}
+
+	private void incrementContentsVersion(UUID backpackUuid) {
+		contentsVersions.merge(backpackUuid, 1, Integer::sum);
+	}
+
+	public int getContentsVersion(UUID backpackUuid) {
+		return contentsVersions.getOrDefault(backpackUuid, 0);
+	}
+
+	public Set<UUID> getDirtyBackpackUuids() {
+		return Collections.unmodifiableSet(dirtyBackpackContents);
+	}
+
+	public BackpackStorageStatistics getStatistics() {
+		return statistics;
 	}
 
 	public void putAccessLog(AccessLogRecord alr) {
@@ -110,20 +336,41 @@ public class BackpackStorage extends WorldSavedData {
 
 	public void removeBackpackContents(UUID backpackUuid) {
 		backpackContents.remove(backpackUuid);
+		dirtyBackpackContents.remove(backpackUuid);
+		incrementContentsVersion(backpackUuid);
+		unloadedBackpackContents.invalidate(backpackUuid);
+		if (saveSharded) {
+			savedShardUuids.remove(backpackUuid);
+			removedBackpackContents.add(backpackUuid);
+		}
+		markDirty();
 	}
 
 	public void setBackpackContents(UUID backpackUuid, CompoundNBT contents) {
-		if (!backpackContents.containsKey(backpackUuid)) {
+		incrementContentsVersion(backpackUuid);
+		CompoundNBT currentContents = backpackContents.get(backpackUuid);
+		if (currentContents == null) {
+			currentContents = loadBackpackContents(backpackUuid).orElse(null);
+			if (currentContents != null) {
+				backpackContents.put(backpackUuid, currentContents);
+			}
+		}
+		if (currentContents == null) {
 			backpackContents.put(backpackUuid, contents);
 			updatedBackpackSettingsFlags.add(backpackUuid);
+			reloadSharedHandlers(backpackUuid, contents);
+			unloadColdBackpackContents();
 		} else {
-			CompoundNBT currentContents = backpackContents.get(backpackUuid);
 			for (String key : contents.keySet()) {
 				//noinspection ConstantConditions - the key is one of the tag keys so there's no reason it wouldn't exist here
 				currentContents.put(key, contents.get(key));
 
 				if (key.equals(BackpackSettingsHandler.SETTINGS_TAG)) {
 					updatedBackpackSettingsFlags.add(backpackUuid);
+				} else if (key.equals(BackpackInventoryHandler.INVENTORY_TAG)) {
+					reloadSharedHandler(inventoryHandlers, backpackUuid, currentContents);
+				} else if (key.equals(BackpackUpgradeHandler.UPGRADE_INVENTORY_TAG)) {
+					reloadSharedHandler(upgradeHandlers, backpackUuid, currentContents);
 				}
 			}
 		}
@@ -134,18 +381,28 @@ public class BackpackStorage extends WorldSavedData {
 	}
 
 	public int removeNonPlayerBackpackContents(boolean onlyWithEmptyInventory) {
-		AtomicInteger numberRemoved = new AtomicInteger(0);
-		backpackContents.entrySet().removeIf(entry -> {
-			if (!accessLogRecords.containsKey(entry.getKey()) && (!onlyWithEmptyInventory || !entry.getValue().contains("inventory"))) {
-				numberRemoved.incrementAndGet();
-				return true;
+		Set<UUID> backpackUuids = new HashSet<>(backpackContents.keySet());
+		backpackUuids.addAll(savedShardUuids);
+
+		int numberRemoved = 0;
+		for (UUID backpackUuid : backpackUuids) {
+			if (!accessLogRecords.containsKey(backpackUuid) && (!onlyWithEmptyInventory || !peekBackpackContents(backpackUuid).contains("inventory"))) {
+				removeBackpackContents(backpackUuid);
+				numberRemoved++;
 			}
-			return false;
-		});
-		if (numberRemoved.get() > 0) {
+		}
+		if (numberRemoved > 0) {
 			markDirty();
 		}
-		return numberRemoved.get();
+		return numberRemoved;
+	}
+
+	private CompoundNBT peekBackpackContents(UUID backpackUuid) {
+		CompoundNBT contents = backpackContents.get(backpackUuid);
+		if (contents != null) {
+			return contents;
+		}
+		return loadBackpackContents(backpackUuid).orElseGet(CompoundNBT::new);
 	}
 
 	private final Set<UUID> updatedBackpackSettingsFlags = new HashSet<>();
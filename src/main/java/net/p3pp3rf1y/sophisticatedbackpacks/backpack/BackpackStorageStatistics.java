@@ -0,0 +1,68 @@
+package net.p3pp3rf1y.sophisticatedbackpacks.backpack;
+
+import net.minecraft.util.Util;
+
+public class BackpackStorageStatistics {
+	private static final long MILLIS_IN_SECOND = 1000;
+
+	private long totalDirtyMarks = 0;
+	private int dirtyMarksInWindow = 0;
+	private long windowStart = Util.milliTime();
+	private int dirtyMarksPerSecond = 0;
+	private int changedBackpacksInLastSave = 0;
+	private int backpacksWrittenInLastSave = 0;
+	private long totalBackpacksWritten = 0;
+	private int saves = 0;
+
+	void onDirtyMark() {
+		totalDirtyMarks++;
+		rollWindow();
+		dirtyMarksInWindow++;
+	}
+
+	void onSave(int changedBackpacks, int backpacksWritten) {
+		saves++;
+		changedBackpacksInLastSave = changedBackpacks;
+		backpacksWrittenInLastSave = backpacksWritten;
+		totalBackpacksWritten += backpacksWritten;
+	}
+
+	void onBackpackWrittenOnUnload() {
+		totalBackpacksWritten++;
+	}
+
+	private void rollWindow() {
+		long now = Util.milliTime();
+		long elapsed = now - windowStart;
+		if (elapsed >= MILLIS_IN_SECOND) {
+			dirtyMarksPerSecond = (int) (dirtyMarksInWindow * MILLIS_IN_SECOND / elapsed);
+			dirtyMarksInWindow = 0;
+			windowStart = now;
+		}
+	}
+
+	public int getDirtyMarksPerSecond() {
+		rollWindow();
+		return dirtyMarksPerSecond;
+	}
+
+	public long getTotalDirtyMarks() {
+		return totalDirtyMarks;
+	}
+
+	public int getChangedBackpacksInLastSave() {
+		return changedBackpacksInLastSave;
+	}
+
+	public int getBackpacksWrittenInLastSave() {
+		return backpacksWrittenInLastSave;
+	}
+
+	public long getTotalBackpacksWritten() {
+		return totalBackpacksWritten;
+	}
+
+	public int getSaves() {
+		return saves;
+	}
+}
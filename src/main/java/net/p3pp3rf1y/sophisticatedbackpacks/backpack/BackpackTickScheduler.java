@@ -0,0 +1,271 @@
+package net.p3pp3rf1y.sophisticatedbackpacks.backpack;
+
+import net.minecraft.entity.LivingEntity;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.util.RegistryKey;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.IWorld;
+import net.minecraft.world.World;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.event.server.FMLServerStoppingEvent;
+import net.p3pp3rf1y.sophisticatedbackpacks.api.IBackpackWrapper;
+import net.p3pp3rf1y.sophisticatedbackpacks.api.ITickableUpgrade;
+import net.p3pp3rf1y.sophisticatedbackpacks.upgrades.UpgradeWrapperBase;
+
+import javax.annotation.Nullable;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+public class BackpackTickScheduler {
+	private BackpackTickScheduler() {}
+
+	//upper bound of how long a backpack can go without its tickable upgrades being looked up again, so that newly added upgrades start ticking
+	private static final int MAX_TICKS_BETWEEN_CHECKS = 20;
+	private static final long UNSCHEDULED = -1;
+
+	private static final Map<RegistryKey<World>, WorldSchedule> worldSchedules = new HashMap<>();
+
+	public static void scheduleHeldBackpack(IBackpackWrapper backpackWrapper, PlayerEntity player) {
+		WorldSchedule schedule = getWorldSchedule(player.world);
+		HeldBackpack heldBackpack = (HeldBackpack) schedule.backpacks.get(backpackWrapper);
+		if (heldBackpack == null || heldBackpack.player != player) {
+			heldBackpack = new HeldBackpack(backpackWrapper, player);
+			schedule.add(backpackWrapper, heldBackpack, player.world.getGameTime());
+		}
+		heldBackpack.lastSeenTime = player.world.getGameTime();
+	}
+
+	public static void schedulePlacedBackpack(BackpackTileEntity tileEntity) {
+		World world = tileEntity.getWorld();
+		if (world == null || world.isRemote) {
+			return;
+		}
+		getWorldSchedule(world).add(tileEntity, new PlacedBackpack(tileEntity), world.getGameTime());
+	}
+
+	public static void unschedulePlacedBackpack(BackpackTileEntity tileEntity) {
+		World world = tileEntity.getWorld();
+		if (world == null || world.isRemote) {
+			return;
+		}
+		WorldSchedule schedule = worldSchedules.get(world.getDimensionKey());
+		if (schedule != null) {
+			schedule.remove(tileEntity);
+		}
+	}
+
+	private static WorldSchedule getWorldSchedule(World world) {
+		return worldSchedules.computeIfAbsent(world.getDimensionKey(), dim -> new WorldSchedule());
+	}
+
+	public static void tick(TickEvent.WorldTickEvent event) {
+		if (event.phase != TickEvent.Phase.END || event.world.isRemote()) {
+			return;
+		}
+		WorldSchedule schedule = worldSchedules.get(event.world.getDimensionKey());
+		if (schedule != null) {
+			schedule.tick(event.world);
+		}
+	}
+
+	public static void onWorldUnload(WorldEvent.Unload event) {
+		IWorld world = event.getWorld();
+		if (!world.isRemote() && world instanceof World) {
+			WorldSchedule schedule = worldSchedules.remove(((World) world).getDimensionKey());
+			if (schedule != null) {
+				schedule.flushUpgradeStates();
+			}
+		}
+	}
+
+	//upgrade state written on world save gets persisted with the next save as backpack contents are already written by the time this event fires
+	public static void onWorldSave(WorldEvent.Save event) {
+		IWorld world = event.getWorld();
+		if (!world.isRemote() && world instanceof World) {
+			WorldSchedule schedule = worldSchedules.get(((World) world).getDimensionKey());
+			if (schedule != null) {
+				schedule.flushUpgradeStates();
+			}
+		}
+	}
+
+	@SuppressWarnings("unused") //need the Event parameter for forge reflection to understand what event this listens to
+	public static void onServerStopping(FMLServerStoppingEvent event) {
+		worldSchedules.values().forEach(WorldSchedule::flushUpgradeStates);
+	}
+
+	private static long getNextTickTime(List<ITickableUpgrade> tickableUpgrades, long gameTime) {
+		long nextTickTime = gameTime + MAX_TICKS_BETWEEN_CHECKS;
+		for (ITickableUpgrade upgrade : tickableUpgrades) {
+			long cooldownTime = upgrade instanceof UpgradeWrapperBase ? ((UpgradeWrapperBase<?, ?>) upgrade).getCooldownTime() : 0;
+			nextTickTime = Math.min(nextTickTime, Math.max(cooldownTime, gameTime + 1));
+		}
+		return nextTickTime;
+	}
+
+	//backpack item is only seen while it ticks in player's inventory, which happens with players' network updates after world tick
+	//so the last time it was seen is the previous game time
+	static boolean wasHeldBackpackSeenRecently(long lastSeenTime, long gameTime) {
+		return lastSeenTime >= gameTime - 1;
+	}
+
+	private static class WorldSchedule {
+		private final Map<Object, ScheduledBackpack> backpacks = new IdentityHashMap<>();
+		private final PriorityQueue<ScheduledTick> queue = new PriorityQueue<>(Comparator.comparingLong(ScheduledTick::getTime));
+
+		private void add(Object key, ScheduledBackpack backpack, long gameTime) {
+			ScheduledBackpack previous = backpacks.put(key, backpack);
+			if (previous != null) {
+				previous.nextTickTime = UNSCHEDULED;
+			}
+			schedule(backpack, gameTime);
+		}
+
+		private void remove(Object key) {
+			ScheduledBackpack backpack = backpacks.remove(key);
+			if (backpack != null) {
+				backpack.nextTickTime = UNSCHEDULED;
+				backpack.flushUpgradeStates();
+			}
+		}
+
+		private void flushUpgradeStates() {
+			backpacks.values().forEach(ScheduledBackpack::flushUpgradeStates);
+		}
+
+		private void schedule(ScheduledBackpack backpack, long time) {
+			backpack.nextTickTime = time;
+			queue.add(new ScheduledTick(time, backpack));
+		}
+
+		private void tick(World world) {
+			long gameTime = world.getGameTime();
+			while (!queue.isEmpty() && queue.peek().getTime() <= gameTime) {
+				ScheduledTick scheduledTick = queue.poll();
+				ScheduledBackpack backpack = scheduledTick.backpack;
+				if (backpack.nextTickTime != scheduledTick.getTime()) {
+					//superseded or removed since this tick was scheduled
+					continue;
+				}
+				if (!backpack.isValid(world, gameTime)) {
+					remove(backpack.getKey());
+					continue;
+				}
+
+				List<ITickableUpgrade> tickableUpgrades = backpack.getBackpackWrapper().getUpgradeHandler().getWrappersThatImplement(ITickableUpgrade.class);
+				tickableUpgrades.forEach(upgrade -> upgrade.tick(backpack.getEntity(), world, backpack.getPosition()));
+				if (backpack.nextTickTime == scheduledTick.getTime()) {
+					schedule(backpack, getNextTickTime(tickableUpgrades, gameTime));
+				}
+			}
+		}
+	}
+
+	private static class ScheduledTick {
+		private final long time;
+		private final ScheduledBackpack backpack;
+
+		private ScheduledTick(long time, ScheduledBackpack backpack) {
+			this.time = time;
+			this.backpack = backpack;
+		}
+
+		public long getTime() {
+			return time;
+		}
+	}
+
+	private abstract static class ScheduledBackpack {
+		private long nextTickTime = UNSCHEDULED;
+
+		protected abstract Object getKey();
+
+		protected abstract IBackpackWrapper getBackpackWrapper();
+
+		protected abstract boolean isValid(World world, long gameTime);
+
+		@Nullable
+		protected abstract LivingEntity getEntity();
+
+		protected abstract BlockPos getPosition();
+
+		private void flushUpgradeStates() {
+			getBackpackWrapper().getUpgradeHandler().flushUpgradeStates();
+		}
+	}
+
+	private static class HeldBackpack extends ScheduledBackpack {
+		private final IBackpackWrapper backpackWrapper;
+		private final PlayerEntity player;
+		private long lastSeenTime;
+
+		private HeldBackpack(IBackpackWrapper backpackWrapper, PlayerEntity player) {
+			this.backpackWrapper = backpackWrapper;
+			this.player = player;
+		}
+
+		@Override
+		protected Object getKey() {
+			return backpackWrapper;
+		}
+
+		@Override
+		protected IBackpackWrapper getBackpackWrapper() {
+			return backpackWrapper;
+		}
+
+		@Override
+		protected boolean isValid(World world, long gameTime) {
+			return wasHeldBackpackSeenRecently(lastSeenTime, gameTime) && player.isAlive() && player.world == world;
+		}
+
+		@Override
+		protected LivingEntity getEntity() {
+			return player;
+		}
+
+		@Override
+		protected BlockPos getPosition() {
+			return player.getPosition();
+		}
+	}
+
+	private static class PlacedBackpack extends ScheduledBackpack {
+		private final BackpackTileEntity tileEntity;
+
+		private PlacedBackpack(BackpackTileEntity tileEntity) {
+			this.tileEntity = tileEntity;
+		}
+
+		@Override
+		protected Object getKey() {
+			return tileEntity;
+		}
+
+		@Override
+		protected IBackpackWrapper getBackpackWrapper() {
+			return tileEntity.getBackpackWrapper();
+		}
+
+		@Override
+		protected boolean isValid(World world, long gameTime) {
+			return !tileEntity.isRemoved() && tileEntity.getWorld() == world;
+		}
+
+		@Nullable
+		@Override
+		protected LivingEntity getEntity() {
+			return null;
+		}
+
+		@Override
+		protected BlockPos getPosition() {
+			return tileEntity.getPos();
+		}
+	}
+}
@@ -5,7 +5,6 @@ import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.CompoundNBT;
 import net.minecraft.network.NetworkManager;
 import net.minecraft.network.play.server.SUpdateTileEntityPacket;
-import net.minecraft.tileentity.ITickableTileEntity;
 import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.Direction;
 import net.minecraftforge.common.capabilities.Capability;
@@ -13,7 +12,6 @@ import net.minecraftforge.common.util.LazyOptional;
 import net.minecraftforge.items.CapabilityItemHandler;
 import net.p3pp3rf1y.sophisticatedbackpacks.api.CapabilityBackpackWrapper;
 import net.p3pp3rf1y.sophisticatedbackpacks.api.IBackpackWrapper;
-import net.p3pp3rf1y.sophisticatedbackpacks.api.ITickableUpgrade;
 import net.p3pp3rf1y.sophisticatedbackpacks.backpack.wrapper.NoopBackpackWrapper;
 import net.p3pp3rf1y.sophisticatedbackpacks.util.WorldHelper;
 
@@ -21,7 +19,7 @@ import javax.annotation.Nullable;
 
 import static net.p3pp3rf1y.sophisticatedbackpacks.init.ModBlocks.BACKPACK_TILE_TYPE;
 
-public class BackpackTileEntity extends TileEntity implements ITickableTileEntity {
+public class BackpackTileEntity extends TileEntity {
 	private IBackpackWrapper backpackWrapper = NoopBackpackWrapper.INSTANCE;
 
 	public BackpackTileEntity() {
@@ -81,12 +79,21 @@ public class BackpackTileEntity extends TileEntity implements ITickableTileEntit
 	}
 
 	@Override
-	public void tick() {
-		//noinspection ConstantConditions - world is always non null at this point
-		if (world.isRemote) {
-			return;
-		}
-		backpackWrapper.getUpgradeHandler().getWrappersThatImplement(ITickableUpgrade.class).forEach(upgrade -> upgrade.tick(null, world, getPos()));
+	public void onLoad() {
+		super.onLoad();
+		BackpackTickScheduler.schedulePlacedBackpack(this);
+	}
+
+	@Override
+	public void remove() {
+		super.remove();
+		BackpackTickScheduler.unschedulePlacedBackpack(this);
+	}
+
+	@Override
+	public void onChunkUnloaded() {
+		super.onChunkUnloaded();
+		BackpackTickScheduler.unschedulePlacedBackpack(this);
 	}
 
 	@Override
@@ -0,0 +1,216 @@
+package net.p3pp3rf1y.sophisticatedbackpacks.backpack;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.minecraft.nbt.CompoundNBT;
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.storage.FolderName;
+import net.p3pp3rf1y.sophisticatedbackpacks.SophisticatedBackpacks;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+public class ShardedBackpackContents {
+	private static final String SHARD_EXTENSION = ".dat";
+	private static final String CORRUPTED_SHARD_EXTENSION = ".corrupted";
+	private static final String TEMP_SHARD_EXTENSION = ".tmp";
+	private static final String CONTENTS_TAG = "contents";
+	private static final int PREFIX_LENGTH = 2;
+	private static final int PENDING_SAVES_TIMEOUT_MINUTES = 5;
+
+	@Nullable
+	private static ExecutorService saveExecutor = null;
+
+	private final Path shardsFolder;
+	private final boolean asyncSaving;
+	//snapshots that were handed over to save executor and may not be on disk yet
+	private final Map<UUID, CompoundNBT> pendingSaves = new ConcurrentHashMap<>();
+
+	public ShardedBackpackContents(Path shardsFolder, boolean asyncSaving) {
+		this.shardsFolder = shardsFolder;
+		this.asyncSaving = asyncSaving;
+	}
+
+	public static ShardedBackpackContents forServer(MinecraftServer server, boolean asyncSaving) {
+		return new ShardedBackpackContents(server.func_240776_a_(FolderName.field_237253_i_).resolve("data").resolve(SophisticatedBackpacks.MOD_ID), asyncSaving);
+	}
+
+	private static synchronized ExecutorService getSaveExecutor() {
+		if (saveExecutor == null) {
+			saveExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("SophisticatedBackpacks-ContentsSave").build());
+		}
+		return saveExecutor;
+	}
+
+	public static synchronized void awaitPendingSaves() {
+		if (saveExecutor == null) {
+			return;
+		}
+		saveExecutor.shutdown();
+		try {
+			if (!saveExecutor.awaitTermination(PENDING_SAVES_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+				SophisticatedBackpacks.LOGGER.error("Saving of backpack contents didn't finish in {} minutes, some backpack contents may not be saved", PENDING_SAVES_TIMEOUT_MINUTES);
+			}
+		}
+		catch (InterruptedException e) {
+			SophisticatedBackpacks.LOGGER.error("Interrupted while waiting for backpack contents to save", e);
+			Thread.currentThread().interrupt();
+		}
+		saveExecutor = null;
+	}
+
+	public Set<UUID> getBackpackUuids() {
+		Set<UUID> uuids = new HashSet<>();
+		if (!Files.isDirectory(shardsFolder)) {
+			return uuids;
+		}
+
+		try (Stream<Path> prefixFolders = Files.list(shardsFolder)) {
+			prefixFolders.filter(Files::isDirectory).forEach(prefixFolder -> addBackpackUuids(prefixFolder, uuids));
+		}
+		catch (IOException e) {
+			SophisticatedBackpacks.LOGGER.error("Error listing backpack contents in {}", shardsFolder, e);
+		}
+		return uuids;
+	}
+
+	private void addBackpackUuids(Path prefixFolder, Set<UUID> uuids) {
+		try (Stream<Path> shards = Files.list(prefixFolder)) {
+			shards.map(shard -> shard.getFileName().toString()).filter(fileName -> fileName.endsWith(SHARD_EXTENSION)).forEach(fileName -> {
+				try {
+					uuids.add(UUID.fromString(fileName.substring(0, fileName.length() - SHARD_EXTENSION.length())));
+				}
+				catch (IllegalArgumentException e) {
+					SophisticatedBackpacks.LOGGER.warn("Ignoring file {} in backpack contents folder as its name is not a backpack uuid", fileName);
+				}
+			});
+		}
+		catch (IOException e) {
+			SophisticatedBackpacks.LOGGER.error("Error listing backpack contents in {}", prefixFolder, e);
+		}
+	}
+
+	public Optional<CompoundNBT> load(UUID backpackUuid) {
+		CompoundNBT pendingContents = pendingSaves.get(backpackUuid);
+		if (pendingContents != null) {
+			return Optional.of(pendingContents.copy());
+		}
+
+		Path shardFile = getShardFile(backpackUuid);
+		if (!Files.exists(shardFile)) {
+			return Optional.empty();
+		}
+
+		try (InputStream stream = Files.newInputStream(shardFile)) {
+			return Optional.of(CompressedStreamTools.readCompressed(stream).getCompound(CONTENTS_TAG));
+		}
+		catch (IOException e) {
+			SophisticatedBackpacks.LOGGER.error("Error loading contents of backpack {}, moving the file aside so that it doesn't get overwritten", backpackUuid, e);
+			moveAsideCorrupted(shardFile);
+			return Optional.empty();
+		}
+	}
+
+	private void moveAsideCorrupted(Path shardFile) {
+		try {
+			Files.move(shardFile, shardFile.resolveSibling(shardFile.getFileName() + CORRUPTED_SHARD_EXTENSION), StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (IOException e) {
+			SophisticatedBackpacks.LOGGER.error("Error moving aside corrupted backpack contents file {}", shardFile, e);
+		}
+	}
+
+	public void save(UUID backpackUuid, CompoundNBT contents) {
+		if (!asyncSaving) {
+			write(backpackUuid, contents);
+			return;
+		}
+
+		CompoundNBT snapshot = contents.copy();
+		pendingSaves.put(backpackUuid, snapshot);
+		getSaveExecutor().execute(() -> {
+			//snapshot superseded by a later save or delete must not overwrite what that one wrote
+			if (pendingSaves.get(backpackUuid) == snapshot) {
+				write(backpackUuid, snapshot);
+				pendingSaves.remove(backpackUuid, snapshot);
+			}
+		});
+	}
+
+	public void saveNow(UUID backpackUuid, CompoundNBT contents) {
+		pendingSaves.remove(backpackUuid);
+		write(backpackUuid, contents);
+	}
+
+	private void write(UUID backpackUuid, CompoundNBT contents) {
+		Path shardFile = getShardFile(backpackUuid);
+		Path tempFile = shardFile.resolveSibling(shardFile.getFileName() + TEMP_SHARD_EXTENSION);
+		CompoundNBT shardNbt = new CompoundNBT();
+		shardNbt.put(CONTENTS_TAG, contents);
+		try {
+			//serialized to memory first as writeCompressed closes the stream and file needs to be synced before it's closed
+			ByteArrayOutputStream serializedShard = new ByteArrayOutputStream();
+			CompressedStreamTools.writeCompressed(shardNbt, serializedShard);
+
+			Files.createDirectories(shardFile.getParent());
+			try (FileOutputStream stream = new FileOutputStream(tempFile.toFile())) {
+				serializedShard.writeTo(stream);
+				stream.getFD().sync();
+			}
+			moveIntoPlace(tempFile, shardFile);
+		}
+		catch (IOException e) {
+			SophisticatedBackpacks.LOGGER.error("Error saving contents of backpack {}", backpackUuid, e);
+		}
+	}
+
+	private void moveIntoPlace(Path tempFile, Path shardFile) throws IOException {
+		try {
+			Files.move(tempFile, shardFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (AtomicMoveNotSupportedException e) {
+			Files.move(tempFile, shardFile, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	public void delete(UUID backpackUuid) {
+		if (!asyncSaving) {
+			deleteFile(backpackUuid);
+			return;
+		}
+
+		pendingSaves.remove(backpackUuid);
+		getSaveExecutor().execute(() -> deleteFile(backpackUuid));
+	}
+
+	private void deleteFile(UUID backpackUuid) {
+		try {
+			Files.deleteIfExists(getShardFile(backpackUuid));
+		}
+		catch (IOException e) {
+			SophisticatedBackpacks.LOGGER.error("Error deleting contents of backpack {}", backpackUuid, e);
+		}
+	}
+
+	private Path getShardFile(UUID backpackUuid) {
+		String uuidString = backpackUuid.toString();
+		return shardsFolder.resolve(uuidString.substring(0, PREFIX_LENGTH)).resolve(uuidString + SHARD_EXTENSION);
+	}
+}
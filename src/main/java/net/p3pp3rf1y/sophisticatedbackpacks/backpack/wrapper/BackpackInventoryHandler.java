@@ -3,42 +3,70 @@ package net.p3pp3rf1y.sophisticatedbackpacks.backpack.wrapper;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.CompoundNBT;
 import net.minecraft.nbt.ListNBT;
+import net.minecraft.util.NonNullList;
 import net.minecraftforge.common.util.Constants;
 import net.minecraftforge.items.ItemHandlerHelper;
 import net.minecraftforge.items.ItemStackHandler;
 import net.p3pp3rf1y.sophisticatedbackpacks.api.CapabilityBackpackWrapper;
-import net.p3pp3rf1y.sophisticatedbackpacks.api.IBackpackWrapper;
 import net.p3pp3rf1y.sophisticatedbackpacks.backpack.BackpackItem;
 import net.p3pp3rf1y.sophisticatedbackpacks.upgrades.inception.InceptionUpgradeItem;
 import net.p3pp3rf1y.sophisticatedbackpacks.util.InventoryHelper;
+import net.p3pp3rf1y.sophisticatedbackpacks.util.ItemStackKey;
 
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.function.Consumer;
 import java.util.function.IntConsumer;
 
-public class BackpackInventoryHandler extends ItemStackHandler {
+public class BackpackInventoryHandler extends ItemStackHandler implements ISlotIndexedItemHandler, ISharedContentsHandler {
 	public static final String INVENTORY_TAG = "inventory";
 	private static final String REAL_COUNT_TAG = "realCount";
-	private final IBackpackWrapper backpackWrapper;
-	private final CompoundNBT contentsNbt;
+	private static final String ITEMS_TAG = "Items";
+	private static final String SLOT_TAG = "Slot";
+	private static final int NO_ITEM_INDEX = -1;
+	//upgrade handler of the same backpack contents, shared by the same wrappers as this handler
+	private final BackpackUpgradeHandler upgradeHandler;
+	private CompoundNBT contentsNbt;
 	private final Runnable backpackSaveHandler;
-	private final List<IntConsumer> onContentsChangedListeners = new ArrayList<>();
+	//listeners are kept per owner that registered them and only for as long as the owner exists, so they must not hold strong reference to their owner
+	private final Map<Object, List<IntConsumer>> onContentsChangedListeners = new WeakHashMap<>();
 	private boolean persistent = true;
-	private final Map<Integer, CompoundNBT> stackNbts = new LinkedHashMap<>();
+	private CompoundNBT inventoryNbt = new CompoundNBT();
+	private ListNBT itemsNbt = new ListNBT();
+	//index of the slot's tag in itemsNbt so that a slot change only touches its own tag
+	private int[] slotItemIndexes = new int[0];
+	//slots that may hold a stack - can include slots whose stack was shrunk to empty outside of the handler, but never misses an occupied one
+	private final BitSet occupiedSlots = new BitSet();
+	private final Map<ItemStackKey, BitSet> stackKeySlots = new HashMap<>();
+	private final Set<ItemStackKey> slotStackKeysView = Collections.unmodifiableSet(stackKeySlots.keySet());
+	private ItemStackKey[] slotStackKeys = new ItemStackKey[0];
+	private int slotStackKeysVersion = 0;
+	//version at which each slot last changed so that open containers only need to compare slots changed since their last check
+	private int[] slotChangeVersions = new int[0];
+	private int allSlotsChangeVersion = 0;
+	private int contentsVersion = 0;
+	//while in batch slot changes only get recorded and are serialized, saved and passed to listeners once the batch is committed
+	private int batchDepth = 0;
+	private final BitSet batchChangedSlots = new BitSet();
 
 	private int slotLimit;
 
 	private int maxStackSizeMultiplier;
 
-	public BackpackInventoryHandler(int numberOfInventorySlots, IBackpackWrapper backpackWrapper, CompoundNBT contentsNbt, Runnable backpackSaveHandler, int slotLimit) {
+	public BackpackInventoryHandler(int numberOfInventorySlots, BackpackUpgradeHandler upgradeHandler, CompoundNBT contentsNbt, Runnable backpackSaveHandler, int slotLimit) {
 		super(numberOfInventorySlots);
-		this.backpackWrapper = backpackWrapper;
+		this.upgradeHandler = upgradeHandler;
 		this.contentsNbt = contentsNbt;
 		this.backpackSaveHandler = backpackSaveHandler;
 		deserializeNBT(contentsNbt.getCompound(INVENTORY_TAG));
-		initStackNbts();
+		initInventoryNbt();
 		setSlotLimit(slotLimit);
 	}
 
@@ -47,46 +75,169 @@ public class BackpackInventoryHandler extends ItemStackHandler {
 		super.setSize(stacks.size());
 	}
 
-	private void initStackNbts() {
+	private void initInventoryNbt() {
+		inventoryNbt = new CompoundNBT();
+		itemsNbt = new ListNBT();
+		slotItemIndexes = new int[stacks.size()];
+		Arrays.fill(slotItemIndexes, NO_ITEM_INDEX);
+		occupiedSlots.clear();
+		stackKeySlots.clear();
+		slotStackKeys = new ItemStackKey[stacks.size()];
+		slotStackKeysVersion++;
+		markAllSlotsChanged();
 		for (int slot = 0; slot < stacks.size(); slot++) {
 			ItemStack slotStack = stacks.get(slot);
 			if (!slotStack.isEmpty()) {
-				stackNbts.put(slot, getSlotsStackNbt(slot, slotStack));
+				occupiedSlots.set(slot);
+				updateStackKeyIndex(slot, slotStack);
+				addSlotNbt(slot, getSlotsStackNbt(slot, slotStack));
 			}
 		}
+		inventoryNbt.put(ITEMS_TAG, itemsNbt);
+		inventoryNbt.putInt("Size", getSlots());
 	}
 
 	@Override
 	public void onContentsChanged(int slot) {
 		super.onContentsChanged(slot);
-		if (persistent && updateSlotNbt(slot)) {
-			saveInventory();
-			onContentsChangedListeners.forEach(l -> l.accept(slot));
+		if (slot < slotChangeVersions.length) {
+			slotChangeVersions[slot] = ++contentsVersion;
+		}
+		ItemStack slotStack = getStackInSlot(slot);
+		occupiedSlots.set(slot, !slotStack.isEmpty());
+		updateStackKeyIndex(slot, slotStack);
+		if (batchDepth > 0) {
+			batchChangedSlots.set(slot);
+		} else if (persistent && updateSlotNbt(slot)) {
+			attachInventoryNbt();
+			backpackSaveHandler.run();
+			notifyListeners(slot);
+		}
+	}
+
+	public void runInBatch(Runnable runnable) {
+		beginBatch();
+		try {
+			runnable.run();
+		}
+		finally {
+			commitBatch();
+		}
+	}
+
+	private void beginBatch() {
+		batchDepth++;
+	}
+
+	private void commitBatch() {
+		if (batchDepth == 0 || --batchDepth > 0) {
+			return;
+		}
+
+		BitSet changedSlots = new BitSet();
+		if (persistent) {
+			for (int slot = batchChangedSlots.nextSetBit(0); slot >= 0; slot = batchChangedSlots.nextSetBit(slot + 1)) {
+				if (updateSlotNbt(slot)) {
+					changedSlots.set(slot);
+				}
+			}
+		}
+		batchChangedSlots.clear();
+		if (changedSlots.isEmpty()) {
+			return;
+		}
+
+		attachInventoryNbt();
+		backpackSaveHandler.run();
+		for (int slot = changedSlots.nextSetBit(0); slot >= 0; slot = changedSlots.nextSetBit(slot + 1)) {
+			notifyListeners(slot);
+		}
+	}
+
+	private void notifyListeners(int slot) {
+		onContentsChangedListeners.values().forEach(listeners -> listeners.forEach(l -> l.accept(slot)));
+	}
+
+	private void markAllSlotsChanged() {
+		if (slotChangeVersions.length != stacks.size()) {
+			slotChangeVersions = new int[stacks.size()];
+		}
+		allSlotsChangeVersion = ++contentsVersion;
+	}
+
+	private void updateStackKeyIndex(int slot, ItemStack slotStack) {
+		ItemStackKey currentKey = slotStackKeys[slot];
+		if (currentKey != null) {
+			if (ItemHandlerHelper.canItemStacksStack(currentKey.getStack(), slotStack)) {
+				return;
+			}
+			BitSet keySlots = stackKeySlots.get(currentKey);
+			keySlots.clear(slot);
+			if (keySlots.isEmpty()) {
+				stackKeySlots.remove(currentKey);
+				slotStackKeysVersion++;
+			}
+			slotStackKeys[slot] = null;
+		}
+
+		if (!slotStack.isEmpty()) {
+			ItemStackKey key = new ItemStackKey(slotStack);
+			slotStackKeys[slot] = key;
+			stackKeySlots.computeIfAbsent(key, k -> {
+				slotStackKeysVersion++;
+				return new BitSet();
+			}).set(slot);
 		}
 	}
 
-	@SuppressWarnings("java:S3824")
-	//compute use here would be difficult as then there's no way of telling that value was newly created vs different than the one that needs to be set
 	private boolean updateSlotNbt(int slot) {
 		ItemStack slotStack = getStackInSlot(slot);
+		int itemIndex = slotItemIndexes[slot];
 		if (slotStack.isEmpty()) {
-			if (stackNbts.containsKey(slot)) {
-				stackNbts.remove(slot);
+			if (itemIndex != NO_ITEM_INDEX) {
+				removeSlotNbt(slot, itemIndex);
 				return true;
 			}
 		} else {
 			CompoundNBT itemTag = getSlotsStackNbt(slot, slotStack);
-			if (!stackNbts.containsKey(slot) || !stackNbts.get(slot).equals(itemTag)) {
-				stackNbts.put(slot, itemTag);
+			if (itemIndex == NO_ITEM_INDEX) {
+				addSlotNbt(slot, itemTag);
+				return true;
+			} else if (!itemsNbt.getCompound(itemIndex).equals(itemTag)) {
+				itemsNbt.set(itemIndex, itemTag);
 				return true;
 			}
 		}
 		return false;
 	}
 
+	private void addSlotNbt(int slot, CompoundNBT itemTag) {
+		slotItemIndexes[slot] = itemsNbt.size();
+		itemsNbt.add(itemTag);
+	}
+
+	private void removeSlotNbt(int slot, int itemIndex) {
+		int lastIndex = itemsNbt.size() - 1;
+		if (itemIndex != lastIndex) {
+			//order of tags doesn't matter as each has its slot number so the last one can fill the gap instead of shifting the whole list
+			CompoundNBT lastItemTag = itemsNbt.getCompound(lastIndex);
+			itemsNbt.set(itemIndex, lastItemTag);
+			slotItemIndexes[lastItemTag.getInt(SLOT_TAG)] = itemIndex;
+		}
+		itemsNbt.remove(lastIndex);
+		slotItemIndexes[slot] = NO_ITEM_INDEX;
+	}
+
+	private void attachInventoryNbt() {
+		//contents don't get the inventory tag until something changes and on client every wrapper has its own handler of the same contents
+		if (contentsNbt.get(INVENTORY_TAG) != inventoryNbt) {
+			contentsNbt.put(INVENTORY_TAG, inventoryNbt);
+		}
+	}
+
 	private CompoundNBT getSlotsStackNbt(int slot, ItemStack slotStack) {
 		CompoundNBT itemTag = new CompoundNBT();
-		itemTag.putInt("Slot", slot);
+		itemTag.putInt(SLOT_TAG, slot);
 		itemTag.putInt(REAL_COUNT_TAG, slotStack.getCount());
 		slotStack.write(itemTag);
 		return itemTag;
@@ -95,10 +246,10 @@ public class BackpackInventoryHandler extends ItemStackHandler {
 	@Override
 	public void deserializeNBT(CompoundNBT nbt) {
 		setSize(nbt.contains("Size", Constants.NBT.TAG_INT) ? nbt.getInt("Size") : stacks.size());
-		ListNBT tagList = nbt.getList("Items", Constants.NBT.TAG_COMPOUND);
+		ListNBT tagList = nbt.getList(ITEMS_TAG, Constants.NBT.TAG_COMPOUND);
 		for (int i = 0; i < tagList.size(); i++) {
 			CompoundNBT itemTags = tagList.getCompound(i);
-			int slot = itemTags.getInt("Slot");
+			int slot = itemTags.getInt(SLOT_TAG);
 
 			if (slot >= 0 && slot < stacks.size()) {
 				ItemStack slotStack = ItemStack.read(itemTags);
@@ -111,6 +262,20 @@ public class BackpackInventoryHandler extends ItemStackHandler {
 		onLoad();
 	}
 
+	public static void iterateStacks(CompoundNBT inventoryNbt, Consumer<ItemStack> stackConsumer) {
+		ListNBT tagList = inventoryNbt.getList(ITEMS_TAG, Constants.NBT.TAG_COMPOUND);
+		for (int i = 0; i < tagList.size(); i++) {
+			CompoundNBT itemTags = tagList.getCompound(i);
+			ItemStack slotStack = ItemStack.read(itemTags);
+			if (itemTags.contains(REAL_COUNT_TAG)) {
+				slotStack.setCount(itemTags.getInt(REAL_COUNT_TAG));
+			}
+			if (!slotStack.isEmpty()) {
+				stackConsumer.accept(slotStack);
+			}
+		}
+	}
+
 	@Override
 	public int getSlotLimit(int slot) {
 		return slotLimit;
@@ -167,7 +332,7 @@ public class BackpackInventoryHandler extends ItemStackHandler {
 	}
 
 	private boolean hasInceptionUpgrade() {
-		return backpackWrapper.getUpgradeHandler().hasUpgrade(InceptionUpgradeItem.TYPE);
+		return upgradeHandler.hasUpgrade(InceptionUpgradeItem.TYPE);
 	}
 
 	private boolean isBackpackWithoutInceptionUpgrade(ItemStack stack) {
@@ -176,30 +341,97 @@ public class BackpackInventoryHandler extends ItemStackHandler {
 	}
 
 	public void saveInventory() {
-		contentsNbt.put(INVENTORY_TAG, serializeNBT());
+		initInventoryNbt();
+		contentsNbt.put(INVENTORY_TAG, inventoryNbt);
 		backpackSaveHandler.run();
 	}
 
 	public void copyStacksTo(BackpackInventoryHandler otherHandler) {
-		InventoryHelper.copyTo(this, otherHandler);
+		otherHandler.runInBatch(() -> InventoryHelper.copyTo(this, otherHandler));
 	}
 
-	public void addListener(IntConsumer onContentsChanged) {
-		onContentsChangedListeners.add(onContentsChanged);
+	public void addListener(Object owner, IntConsumer onContentsChanged) {
+		onContentsChangedListeners.computeIfAbsent(owner, o -> new ArrayList<>()).add(onContentsChanged);
 	}
 
-	public void clearListeners() {
-		onContentsChangedListeners.clear();
+	public void clearListeners(Object owner) {
+		onContentsChangedListeners.remove(owner);
+	}
+
+	@Override
+	public boolean isBackedBy(CompoundNBT contentsNbt) {
+		return this.contentsNbt == contentsNbt;
+	}
+
+	@Override
+	public void reload(CompoundNBT contentsNbt, int numberOfSlots) {
+		this.contentsNbt = contentsNbt;
+		stacks = NonNullList.withSize(numberOfSlots, ItemStack.EMPTY);
+		deserializeNBT(contentsNbt.getCompound(INVENTORY_TAG));
+		initInventoryNbt();
+		for (int slot = 0; slot < numberOfSlots; slot++) {
+			notifyListeners(slot);
+		}
 	}
 
 	@Override
 	public CompoundNBT serializeNBT() {
-		ListNBT nbtTagList = new ListNBT();
-		nbtTagList.addAll(stackNbts.values());
-		CompoundNBT nbt = new CompoundNBT();
-		nbt.put("Items", nbtTagList);
-		nbt.putInt("Size", getSlots());
-		return nbt;
+		return inventoryNbt.copy();
+	}
+
+	public boolean isEmpty() {
+		return nextOccupiedSlot(0) < 0;
+	}
+
+	public int nextOccupiedSlot(int fromSlot) {
+		for (int slot = occupiedSlots.nextSetBit(fromSlot); slot >= 0; slot = occupiedSlots.nextSetBit(slot + 1)) {
+			if (!stacks.get(slot).isEmpty()) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public boolean isSlotIndexAvailable() {
+		return true;
+	}
+
+	@Override
+	public int nextSlotWithMatchingStack(ItemStackKey stackKey, int fromSlot) {
+		BitSet keySlots = stackKeySlots.get(stackKey);
+		return keySlots == null ? -1 : keySlots.nextSetBit(fromSlot);
+	}
+
+	@Override
+	public int nextEmptySlot(int fromSlot) {
+		int emptySlot = occupiedSlots.nextClearBit(fromSlot);
+		//slots before the first clear bit can still be empty if their stack was shrunk to nothing outside of the handler
+		for (int slot = occupiedSlots.nextSetBit(fromSlot); slot >= 0 && slot < emptySlot; slot = occupiedSlots.nextSetBit(slot + 1)) {
+			if (stacks.get(slot).isEmpty()) {
+				occupiedSlots.clear(slot);
+				return slot;
+			}
+		}
+		return emptySlot < getSlots() ? emptySlot : -1;
+	}
+
+	@Override
+	public Set<ItemStackKey> getSlotStackKeys() {
+		return slotStackKeysView;
+	}
+
+	@Override
+	public int getSlotStackKeysVersion() {
+		return slotStackKeysVersion;
+	}
+
+	public int getContentsVersion() {
+		return contentsVersion;
+	}
+
+	public boolean hasSlotChangedSince(int slot, int version) {
+		return allSlotsChangeVersion > version || slot >= slotChangeVersions.length || slotChangeVersions[slot] > version;
 	}
 
 	public int getStackSizeMultiplier() {
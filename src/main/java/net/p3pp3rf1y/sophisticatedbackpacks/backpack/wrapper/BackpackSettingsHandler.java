@@ -20,6 +20,7 @@ public class BackpackSettingsHandler {
 	private final Map<Class<?>, List<?>> interfaceCategories = new HashMap<>();
 	private final Map<String, ISettingsCategory> settingsCategories = new LinkedHashMap<>();
 	private final Map<Class<? extends ISettingsCategory>, ISettingsCategory> typeCategories = new HashMap<>();
+	private int version = 0;
 
 	public BackpackSettingsHandler(CompoundNBT backpackContentsNbt, Runnable markBackpackContentsDirty) {
 		this.backpackContentsNbt = backpackContentsNbt;
@@ -36,6 +37,7 @@ public class BackpackSettingsHandler {
 		ISettingsCategory category = instantiateCategory.apply(settingsNbt.getCompound(categoryName), tag -> {
 			settingsNbt.put(categoryName, tag);
 			backpackContentsNbt.put(SETTINGS_TAG, settingsNbt);
+			version++;
 			markBackpackContentsDirty.run();
 		});
 		settingsCategories.put(categoryName, category);
@@ -71,6 +73,7 @@ public class BackpackSettingsHandler {
 		if (backpackContentsNbt.contains(SETTINGS_TAG)) {
 			//noinspection ConstantConditions - checking for whether tag exists just one line up
 			settingsHandler.backpackContentsNbt.put(SETTINGS_TAG, backpackContentsNbt.get(SETTINGS_TAG));
+			settingsHandler.version++;
 		}
 	}
 
@@ -78,8 +81,13 @@ public class BackpackSettingsHandler {
 		return backpackContentsNbt.getCompound(SETTINGS_TAG);
 	}
 
+	public int getVersion() {
+		return version;
+	}
+
 	public void reloadFrom(CompoundNBT backpackContentsNbt) {
 		CompoundNBT settingsNbt = backpackContentsNbt.getCompound(SETTINGS_TAG);
 		settingsCategories.forEach((categoryName, category) -> category.reloadFrom(settingsNbt.getCompound(categoryName)));
+		version++;
 	}
 }
@@ -4,6 +4,7 @@ import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.CompoundNBT;
 import net.minecraft.util.Direction;
+import net.minecraft.util.NonNullList;
 import net.minecraftforge.items.CapabilityItemHandler;
 import net.minecraftforge.items.ItemStackHandler;
 import net.p3pp3rf1y.sophisticatedbackpacks.api.IBackpackUpgradeItem;
@@ -11,6 +12,7 @@ import net.p3pp3rf1y.sophisticatedbackpacks.api.IBackpackWrapper;
 import net.p3pp3rf1y.sophisticatedbackpacks.api.IUpgradeAccessModifier;
 import net.p3pp3rf1y.sophisticatedbackpacks.api.IUpgradeWrapper;
 import net.p3pp3rf1y.sophisticatedbackpacks.api.UpgradeType;
+import net.p3pp3rf1y.sophisticatedbackpacks.upgrades.UpgradeWrapperBase;
 import net.p3pp3rf1y.sophisticatedbackpacks.util.InventoryHelper;
 
 import javax.annotation.Nonnull;
@@ -18,34 +20,54 @@ import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.function.Consumer;
 
-public class BackpackUpgradeHandler extends ItemStackHandler {
+public class BackpackUpgradeHandler extends ItemStackHandler implements ISharedContentsHandler {
 	public static final String UPGRADE_INVENTORY_TAG = "upgradeInventory";
+	//upgrades are created with the wrapper that created this handler and keep it alive for as long as this handler is
 	private final IBackpackWrapper backpackWrapper;
 	private final Runnable backpackSaveHandler;
-	private final Runnable onInvalidateUpgradeCaches;
-	private final CompoundNBT contentsNbt;
+	private CompoundNBT contentsNbt;
+	//handler is shared by all wrappers of the same backpack contents, these only get weakly referenced so that wrappers of discarded stacks can be collected
+	private final Set<BackpackWrapper> attachedWrappers = Collections.newSetFromMap(new WeakHashMap<>());
 	@Nullable
 	private Runnable refreshCallBack = null;
 	private final Map<Integer, IUpgradeWrapper> slotWrappers = new HashMap<>();
+	//only upgrades whose state changed since the last flush need to be saved
+	private final Set<UpgradeWrapperBase<?, ?>> dirtyStateWrappers = new HashSet<>();
 	private final Map<UpgradeType<? extends IUpgradeWrapper>, List<? extends IUpgradeWrapper>> typeWrappers = new HashMap<>();
+	//interfaces are precomputed when wrappers get initialized, classes get added when first looked up
+	private final Map<Class<?>, List<?>> interfaceWrappers = new HashMap<>();
 	private boolean justSavingNbtChange = false;
 	private boolean wrappersInitialized = false;
 	@Nullable
 	private IUpgradeWrapperAccessor wrapperAccessor = null;
 	private boolean persistent = true;
+	private int[] slotChangeVersions = new int[0];
+	private int allSlotsChangeVersion = 0;
+	private int contentsVersion = 0;
 
-	public BackpackUpgradeHandler(int numberOfUpgradeSlots, IBackpackWrapper backpackWrapper, CompoundNBT contentsNbt, Runnable backpackSaveHandler, Runnable onInvalidateUpgradeCaches) {
+	public BackpackUpgradeHandler(int numberOfUpgradeSlots, IBackpackWrapper backpackWrapper, CompoundNBT contentsNbt, Runnable backpackSaveHandler) {
 		super(numberOfUpgradeSlots);
 		this.contentsNbt = contentsNbt;
 		this.backpackWrapper = backpackWrapper;
 		this.backpackSaveHandler = backpackSaveHandler;
-		this.onInvalidateUpgradeCaches = onInvalidateUpgradeCaches;
 		deserializeNBT(contentsNbt.getCompound(UPGRADE_INVENTORY_TAG));
 	}
 
+	void attachWrapper(BackpackWrapper wrapper) {
+		attachedWrappers.add(wrapper);
+	}
+
+	void forEachAttachedWrapper(Consumer<BackpackWrapper> action) {
+		new ArrayList<>(attachedWrappers).forEach(action);
+	}
+
 	//TODO: remove this in the future - is only meant to remove items that got there through bug in BackpackContainer
 	public void runTemporaryBugFixToRemoveInvalidItems(PlayerEntity player) {
 		InventoryHelper.iterate(this, (slot, stack) -> {
@@ -65,20 +87,52 @@ public class BackpackUpgradeHandler extends ItemStackHandler {
 	@Override
 	protected void onContentsChanged(int slot) {
 		super.onContentsChanged(slot);
+		if (slot < slotChangeVersions.length) {
+			slotChangeVersions[slot] = ++contentsVersion;
+		}
 		if (persistent) {
 			saveInventory();
 			backpackSaveHandler.run();
 		}
-		if (!justSavingNbtChange) {
+		if (!justSavingNbtChange && upgradeChanged(slot)) {
 			refreshUpgradeWrappers();
 		}
 	}
 
+	private boolean upgradeChanged(int slot) {
+		if (!wrappersInitialized) {
+			return true;
+		}
+		IUpgradeWrapper wrapper = slotWrappers.get(slot);
+		ItemStack slotStack = getStackInSlot(slot);
+		if (wrapper == null) {
+			return !slotStack.isEmpty();
+		}
+		return !ItemStack.areItemStacksEqual(wrapper.getUpgradeStack(), slotStack);
+	}
+
 	@Override
 	public void setSize(int size) {
 		super.setSize(stacks.size());
 	}
 
+	@Override
+	protected void onLoad() {
+		super.onLoad();
+		if (slotChangeVersions.length != stacks.size()) {
+			slotChangeVersions = new int[stacks.size()];
+		}
+		allSlotsChangeVersion = ++contentsVersion;
+	}
+
+	public int getContentsVersion() {
+		return contentsVersion;
+	}
+
+	public boolean hasSlotChangedSince(int slot, int version) {
+		return allSlotsChangeVersion > version || slot >= slotChangeVersions.length || slotChangeVersions[slot] > version;
+	}
+
 	public void saveInventory() {
 		contentsNbt.put(UPGRADE_INVENTORY_TAG, serializeNBT());
 	}
@@ -102,6 +156,7 @@ public class BackpackUpgradeHandler extends ItemStackHandler {
 		wrappersInitialized = true;
 		slotWrappers.clear();
 		typeWrappers.clear();
+		interfaceWrappers.clear();
 
 		InventoryHelper.iterate(this, (slot, upgrade) -> {
 			if (upgrade.isEmpty() || !(upgrade.getItem() instanceof IBackpackUpgradeItem<?>)) {
@@ -116,8 +171,33 @@ public class BackpackUpgradeHandler extends ItemStackHandler {
 			slotWrappers.put(slot, wrapper);
 			if (wrapper.isEnabled()) {
 				addTypeWrapper(type, wrapper);
+				addInterfaceWrapper(wrapper);
 			}
 		});
+		interfaceWrappers.replaceAll((upgradeInterface, wrappers) -> Collections.unmodifiableList(wrappers));
+	}
+
+	private void addInterfaceWrapper(IUpgradeWrapper wrapper) {
+		for (Class<?> upgradeInterface : getAllInterfaces(wrapper.getClass())) {
+			//noinspection unchecked
+			((List<IUpgradeWrapper>) interfaceWrappers.computeIfAbsent(upgradeInterface, i -> new ArrayList<>())).add(wrapper);
+		}
+	}
+
+	private static Set<Class<?>> getAllInterfaces(Class<?> wrapperClass) {
+		Set<Class<?>> ret = new HashSet<>();
+		for (Class<?> clazz = wrapperClass; clazz != null; clazz = clazz.getSuperclass()) {
+			addInterfaces(clazz, ret);
+		}
+		return ret;
+	}
+
+	private static void addInterfaces(Class<?> clazz, Set<Class<?>> interfaces) {
+		for (Class<?> implementedInterface : clazz.getInterfaces()) {
+			if (interfaces.add(implementedInterface)) {
+				addInterfaces(implementedInterface, interfaces);
+			}
+		}
 	}
 
 	private <T extends IUpgradeWrapper> void addTypeWrapper(UpgradeType<?> type, T wrapper) {
@@ -151,20 +231,45 @@ public class BackpackUpgradeHandler extends ItemStackHandler {
 		return wrapperAccessor;
 	}
 
+	public void onUpgradeStateDirty(UpgradeWrapperBase<?, ?> wrapper) {
+		dirtyStateWrappers.add(wrapper);
+	}
+
+	public void flushUpgradeStates() {
+		if (!dirtyStateWrappers.isEmpty()) {
+			List<UpgradeWrapperBase<?, ?>> wrappers = new ArrayList<>(dirtyStateWrappers);
+			dirtyStateWrappers.clear();
+			wrappers.forEach(UpgradeWrapperBase::flushState);
+		}
+		if (wrapperAccessor != null) {
+			wrapperAccessor.flushUpgradeStates();
+		}
+	}
+
 	public <T> List<T> getWrappersThatImplementFromMainBackpack(Class<T> upgradeClass) {
 		initializeWrappers();
 		return getWrapperAccessor().getWrappersThatImplementFromMainBackpack(upgradeClass);
 	}
 
 	public <T> List<T> getListOfWrappersThatImplement(Class<T> uc) {
-		List<T> ret = new ArrayList<>();
+		initializeWrappers();
+		if (uc.isInterface()) {
+			//noinspection unchecked
+			return (List<T>) interfaceWrappers.getOrDefault(uc, Collections.emptyList());
+		}
+
+		//noinspection unchecked
+		return (List<T>) interfaceWrappers.computeIfAbsent(uc, this::getWrappersOfClass);
+	}
+
+	private List<?> getWrappersOfClass(Class<?> upgradeClass) {
+		List<Object> ret = new ArrayList<>();
 		for (IUpgradeWrapper wrapper : slotWrappers.values()) {
-			if (wrapper.isEnabled() && uc.isInstance(wrapper)) {
-				//noinspection unchecked
-				ret.add((T) wrapper);
+			if (wrapper.isEnabled() && upgradeClass.isInstance(wrapper)) {
+				ret.add(wrapper);
 			}
 		}
-		return ret;
+		return ret.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(ret);
 	}
 
 	public Map<Integer, IUpgradeWrapper> getSlotWrappers() {
@@ -172,11 +277,27 @@ public class BackpackUpgradeHandler extends ItemStackHandler {
 		return slotWrappers;
 	}
 
+	@Override
+	public boolean isBackedBy(CompoundNBT contentsNbt) {
+		return this.contentsNbt == contentsNbt;
+	}
+
+	@Override
+	public void reload(CompoundNBT contentsNbt, int numberOfSlots) {
+		//states of the current upgrades need to be in their stacks before these are read again
+		flushDiscardedWrapperStates();
+		this.contentsNbt = contentsNbt;
+		stacks = NonNullList.withSize(numberOfSlots, ItemStack.EMPTY);
+		deserializeNBT(contentsNbt.getCompound(UPGRADE_INVENTORY_TAG));
+		refreshUpgradeWrappers();
+	}
+
 	public void copyTo(BackpackUpgradeHandler otherHandler) {
 		InventoryHelper.copyTo(this, otherHandler);
 	}
 
 	public void refreshUpgradeWrappers() {
+		flushDiscardedWrapperStates();
 		wrappersInitialized = false;
 		if (wrapperAccessor != null) {
 			wrapperAccessor.onBeforeDeconstruct();
@@ -185,12 +306,29 @@ public class BackpackUpgradeHandler extends ItemStackHandler {
 		if (refreshCallBack != null) {
 			refreshCallBack.run();
 		}
-		onInvalidateUpgradeCaches.run();
+		forEachAttachedWrapper(BackpackWrapper::onUpgradesRefreshed);
 	}
 
-	private static class Accessor implements IUpgradeWrapperAccessor {
-		private final Map<Class<?>, List<?>> interfaceWrappers = new HashMap<>();
+	private void flushDiscardedWrapperStates() {
+		dirtyStateWrappers.clear();
+		if (!wrappersInitialized) {
+			return;
+		}
+		slotWrappers.forEach((slot, wrapper) -> {
+			if (!(wrapper instanceof UpgradeWrapperBase)) {
+				return;
+			}
+			UpgradeWrapperBase<?, ?> upgradeWrapper = (UpgradeWrapperBase<?, ?>) wrapper;
+			if (slot < getSlots() && getStackInSlot(slot) == upgradeWrapper.getUpgradeStack()) {
+				upgradeWrapper.flushState();
+			} else {
+				//upgrade stack was taken out of the slot so the state goes with it, but saving it would overwrite whatever is in the slot now
+				upgradeWrapper.writeDirtyState();
+			}
+		});
+	}
 
+	private static class Accessor implements IUpgradeWrapperAccessor {
 		private final BackpackUpgradeHandler upgradeHandler;
 
 		public Accessor(BackpackUpgradeHandler upgradeHandler) {
@@ -199,14 +337,12 @@ public class BackpackUpgradeHandler extends ItemStackHandler {
 
 		@Override
 		public <T> List<T> getWrappersThatImplement(Class<T> upgradeClass) {
-			//noinspection unchecked
-			return (List<T>) interfaceWrappers.computeIfAbsent(upgradeClass, upgradeHandler::getListOfWrappersThatImplement);
+			return upgradeHandler.getListOfWrappersThatImplement(upgradeClass);
 		}
 
 		@Override
 		public <T> List<T> getWrappersThatImplementFromMainBackpack(Class<T> upgradeClass) {
-			//noinspection unchecked
-			return (List<T>) interfaceWrappers.computeIfAbsent(upgradeClass, upgradeHandler::getListOfWrappersThatImplement);
+			return upgradeHandler.getListOfWrappersThatImplement(upgradeClass);
 		}
 	}
 }
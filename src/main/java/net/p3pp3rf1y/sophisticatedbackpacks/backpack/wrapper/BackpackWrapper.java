@@ -19,7 +19,6 @@ import net.p3pp3rf1y.sophisticatedbackpacks.settings.nosort.NoSortSettingsCatego
 import net.p3pp3rf1y.sophisticatedbackpacks.upgrades.stack.StackUpgradeItem;
 import net.p3pp3rf1y.sophisticatedbackpacks.util.InventoryHelper;
 import net.p3pp3rf1y.sophisticatedbackpacks.util.InventorySorter;
-import net.p3pp3rf1y.sophisticatedbackpacks.util.ItemStackKey;
 import net.p3pp3rf1y.sophisticatedbackpacks.util.LootHelper;
 import net.p3pp3rf1y.sophisticatedbackpacks.util.NBTHelper;
 import net.p3pp3rf1y.sophisticatedbackpacks.util.RandHelper;
@@ -27,9 +26,9 @@ import net.p3pp3rf1y.sophisticatedbackpacks.util.RandHelper;
 import javax.annotation.Nullable;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public class BackpackWrapper implements IBackpackWrapper {
 	public static final int DEFAULT_CLOTH_COLOR = 13394234;
@@ -79,7 +78,11 @@ public class BackpackWrapper implements IBackpackWrapper {
 	@Override
 	public BackpackInventoryHandler getInventoryHandler() {
 		if (handler == null) {
-			handler = new BackpackInventoryHandler(getNumberOfInventorySlots(), this, getBackpackContentsNbt(), this::markBackpackContentsDirty, StackUpgradeItem.getInventorySlotLimit(this));
+			int numberOfInventorySlots = getNumberOfInventorySlots();
+			UUID contentsUuid = getOrCreateContentsUuid();
+			//save handler must not reference this wrapper as the handler may outlive it
+			handler = BackpackStorage.get().getOrCreateInventoryHandler(contentsUuid, numberOfInventorySlots,
+					contentsNbt -> new BackpackInventoryHandler(numberOfInventorySlots, getUpgradeHandler(), contentsNbt, () -> BackpackStorage.get().markBackpackContentsDirty(contentsUuid), StackUpgradeItem.getInventorySlotLimit(this)));
 		}
 		return handler;
 	}
@@ -105,7 +108,7 @@ public class BackpackWrapper implements IBackpackWrapper {
 	}
 
 	private void markBackpackContentsDirty() {
-		BackpackStorage.get().markDirty();
+		getContentsUuid().ifPresent(uuid -> BackpackStorage.get().markBackpackContentsDirty(uuid));
 	}
 
 	@Override
@@ -148,16 +151,13 @@ public class BackpackWrapper implements IBackpackWrapper {
 	@Override
 	public BackpackUpgradeHandler getUpgradeHandler() {
 		if (upgradeHandler == null) {
-			if (getContentsUuid().isPresent()) {
-				upgradeHandler = new BackpackUpgradeHandler(getNumberOfUpgradeSlots(), this, getBackpackContentsNbt(), this::markBackpackContentsDirty, () -> {
-					if (handler != null) {
-						handler.clearListeners();
-						handler.setSlotLimit(StackUpgradeItem.getInventorySlotLimit(this));
-					}
-					getInventoryHandler().clearListeners();
-					inventoryIOHandler = null;
-					inventoryModificationHandler = null;
-				});
+			Optional<UUID> contentsUuid = getContentsUuid();
+			if (contentsUuid.isPresent()) {
+				int numberOfUpgradeSlots = getNumberOfUpgradeSlots();
+				UUID uuid = contentsUuid.get();
+				upgradeHandler = BackpackStorage.get().getOrCreateUpgradeHandler(uuid, numberOfUpgradeSlots,
+						contentsNbt -> new BackpackUpgradeHandler(numberOfUpgradeSlots, this, contentsNbt, () -> BackpackStorage.get().markBackpackContentsDirty(uuid)));
+				upgradeHandler.attachWrapper(this);
 			} else {
 				upgradeHandler = NoopBackpackWrapper.INSTANCE.getUpgradeHandler();
 			}
@@ -165,6 +165,15 @@ public class BackpackWrapper implements IBackpackWrapper {
 		return upgradeHandler;
 	}
 
+	void onUpgradesRefreshed() {
+		if (handler != null) {
+			handler.clearListeners(this);
+			handler.setSlotLimit(StackUpgradeItem.getInventorySlotLimit(this));
+		}
+		inventoryIOHandler = null;
+		inventoryModificationHandler = null;
+	}
+
 	private int getNumberOfUpgradeSlots() {
 		Optional<Integer> upgradeSlots = NBTHelper.getInt(backpack, UPGRADE_SLOTS_TAG);
 
@@ -264,10 +273,11 @@ public class BackpackWrapper implements IBackpackWrapper {
 
 	@Override
 	public void sort() {
-		InventorySorter.sortHandler(getInventoryHandler(), getComparator(), getSettingsHandler().getTypeCategory(NoSortSettingsCategory.class).getNoSortSlots());
+		BackpackInventoryHandler inventoryHandler = getInventoryHandler();
+		inventoryHandler.runInBatch(() -> InventorySorter.sortHandler(inventoryHandler, getComparator(), getSettingsHandler().getTypeCategory(NoSortSettingsCategory.class).getNoSortSlots()));
 	}
 
-	private Comparator<Map.Entry<ItemStackKey, Integer>> getComparator() {
+	private Comparator<InventorySorter.SortKey> getComparator() {
 		switch (getSortBy()) {
 			case COUNT:
 				return InventorySorter.BY_COUNT;
@@ -314,7 +324,15 @@ public class BackpackWrapper implements IBackpackWrapper {
 
 	@Override
 	public void refreshInventoryForInputOutput() {
-		inventoryIOHandler = null;
+		//upgrades are shared by all wrappers of the same backpack so what they built from them needs to be refreshed as well
+		forEachWrapperSharingUpgrades(w -> w.inventoryIOHandler = null);
+	}
+
+	private void forEachWrapperSharingUpgrades(Consumer<BackpackWrapper> action) {
+		action.accept(this);
+		if (upgradeHandler != null) {
+			upgradeHandler.forEachAttachedWrapper(action);
+		}
 	}
 
 	@Override
@@ -327,6 +345,9 @@ public class BackpackWrapper implements IBackpackWrapper {
 	public void setSlotNumbers(int numberOfInventorySlots, int numberOfUpgradeSlots) {
 		setNumberOfInventorySlots(numberOfInventorySlots);
 		setNumberOfUpgradeSlots(numberOfUpgradeSlots);
+		//handlers get resized in place when fetched from storage again
+		handler = null;
+		upgradeHandler = null;
 	}
 
 	@Override
@@ -364,8 +385,9 @@ public class BackpackWrapper implements IBackpackWrapper {
 		ServerWorld world = (ServerWorld) playerEntity.world;
 
 		List<ItemStack> loot = LootHelper.getLoot(lootTableName, server, world, playerEntity);
-		loot = RandHelper.getNRandomElements(loot, (int) (loot.size() * lootPercentage));
-		LootHelper.fillWithLoot(world.rand, loot, getInventoryHandler());
+		List<ItemStack> randomLoot = RandHelper.getNRandomElements(loot, (int) (loot.size() * lootPercentage));
+		BackpackInventoryHandler inventoryHandler = getInventoryHandler();
+		inventoryHandler.runInBatch(() -> LootHelper.fillWithLoot(world.rand, randomLoot, inventoryHandler));
 	}
 
 	private void setNumberOfUpgradeSlots(int numberOfUpgradeSlots) {
@@ -374,8 +396,10 @@ public class BackpackWrapper implements IBackpackWrapper {
 
 	@Override
 	public void refreshInventoryForUpgradeProcessing() {
-		inventoryModificationHandler = null;
-		refreshInventoryForInputOutput();
+		forEachWrapperSharingUpgrades(w -> {
+			w.inventoryModificationHandler = null;
+			w.inventoryIOHandler = null;
+		});
 	}
 
 	@Override
@@ -4,10 +4,12 @@ import net.minecraft.item.ItemStack;
 import net.minecraftforge.items.IItemHandler;
 import net.minecraftforge.items.IItemHandlerModifiable;
 import net.p3pp3rf1y.sophisticatedbackpacks.upgrades.FilterLogic;
+import net.p3pp3rf1y.sophisticatedbackpacks.util.ItemStackKey;
 
 import java.util.List;
+import java.util.Set;
 
-public class FilteredItemHandler<T extends IItemHandler> implements IItemHandler {
+public class FilteredItemHandler<T extends IItemHandler> implements ISlotIndexedItemHandler {
 	protected final T inventoryHandler;
 	private final List<FilterLogic> inputFilters;
 	private final List<FilterLogic> outputFilters;
@@ -66,6 +68,31 @@ public class FilteredItemHandler<T extends IItemHandler> implements IItemHandler
 		return inventoryHandler.isItemValid(slot, stack);
 	}
 
+	@Override
+	public boolean isSlotIndexAvailable() {
+		return inventoryHandler instanceof ISlotIndexedItemHandler && ((ISlotIndexedItemHandler) inventoryHandler).isSlotIndexAvailable();
+	}
+
+	@Override
+	public int nextSlotWithMatchingStack(ItemStackKey stackKey, int fromSlot) {
+		return ((ISlotIndexedItemHandler) inventoryHandler).nextSlotWithMatchingStack(stackKey, fromSlot);
+	}
+
+	@Override
+	public int nextEmptySlot(int fromSlot) {
+		return ((ISlotIndexedItemHandler) inventoryHandler).nextEmptySlot(fromSlot);
+	}
+
+	@Override
+	public Set<ItemStackKey> getSlotStackKeys() {
+		return ((ISlotIndexedItemHandler) inventoryHandler).getSlotStackKeys();
+	}
+
+	@Override
+	public int getSlotStackKeysVersion() {
+		return ((ISlotIndexedItemHandler) inventoryHandler).getSlotStackKeysVersion();
+	}
+
 	public static class Modifiable extends FilteredItemHandler<IItemHandlerModifiable> implements IItemHandlerModifiable {
 		public Modifiable(IItemHandlerModifiable inventoryHandler, List<FilterLogic> inputFilters, List<FilterLogic> outputFilters) {
 			super(inventoryHandler, inputFilters, outputFilters);
@@ -0,0 +1,11 @@
+package net.p3pp3rf1y.sophisticatedbackpacks.backpack.wrapper;
+
+import net.minecraft.nbt.CompoundNBT;
+
+public interface ISharedContentsHandler {
+	boolean isBackedBy(CompoundNBT contentsNbt);
+
+	int getSlots();
+
+	void reload(CompoundNBT contentsNbt, int numberOfSlots);
+}
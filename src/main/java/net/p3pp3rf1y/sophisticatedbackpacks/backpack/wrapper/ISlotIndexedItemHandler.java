@@ -0,0 +1,18 @@
+package net.p3pp3rf1y.sophisticatedbackpacks.backpack.wrapper;
+
+import net.minecraftforge.items.IItemHandler;
+import net.p3pp3rf1y.sophisticatedbackpacks.util.ItemStackKey;
+
+import java.util.Set;
+
+public interface ISlotIndexedItemHandler extends IItemHandler {
+	boolean isSlotIndexAvailable();
+
+	int nextSlotWithMatchingStack(ItemStackKey stackKey, int fromSlot);
+
+	int nextEmptySlot(int fromSlot);
+
+	Set<ItemStackKey> getSlotStackKeys();
+
+	int getSlotStackKeysVersion();
+}
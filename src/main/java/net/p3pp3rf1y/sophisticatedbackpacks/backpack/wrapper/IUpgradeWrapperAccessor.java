@@ -10,4 +10,9 @@ public interface IUpgradeWrapperAccessor {
 	default void onBeforeDeconstruct() {
 		//noop
 	}
+
+	//states of upgrades that are accessed through this, but don't belong to the handler itself
+	default void flushUpgradeStates() {
+		//noop
+	}
 }
@@ -5,10 +5,12 @@ import net.minecraftforge.items.IItemHandler;
 import net.minecraftforge.items.IItemHandlerModifiable;
 import net.p3pp3rf1y.sophisticatedbackpacks.api.IBackpackWrapper;
 import net.p3pp3rf1y.sophisticatedbackpacks.api.IInsertResponseUpgrade;
+import net.p3pp3rf1y.sophisticatedbackpacks.util.ItemStackKey;
 
 import java.util.List;
+import java.util.Set;
 
-public class InsertResponseInventoryWrapper implements IItemHandlerModifiable {
+public class InsertResponseInventoryWrapper implements IItemHandlerModifiable, ISlotIndexedItemHandler {
 	private final IBackpackWrapper backpackWrapper;
 	private final IItemHandlerModifiable inventory;
 
@@ -65,6 +67,31 @@ public class InsertResponseInventoryWrapper implements IItemHandlerModifiable {
 		return inventory.isItemValid(slot, stack);
 	}
 
+	@Override
+	public boolean isSlotIndexAvailable() {
+		return inventory instanceof ISlotIndexedItemHandler && ((ISlotIndexedItemHandler) inventory).isSlotIndexAvailable();
+	}
+
+	@Override
+	public int nextSlotWithMatchingStack(ItemStackKey stackKey, int fromSlot) {
+		return ((ISlotIndexedItemHandler) inventory).nextSlotWithMatchingStack(stackKey, fromSlot);
+	}
+
+	@Override
+	public int nextEmptySlot(int fromSlot) {
+		return ((ISlotIndexedItemHandler) inventory).nextEmptySlot(fromSlot);
+	}
+
+	@Override
+	public Set<ItemStackKey> getSlotStackKeys() {
+		return ((ISlotIndexedItemHandler) inventory).getSlotStackKeys();
+	}
+
+	@Override
+	public int getSlotStackKeysVersion() {
+		return ((ISlotIndexedItemHandler) inventory).getSlotStackKeysVersion();
+	}
+
 	private void runOnAfterInsert(int slot, boolean simulate, IItemHandler handler, IBackpackWrapper backpackWrapper) {
 		if (!simulate) {
 			backpackWrapper.getUpgradeHandler().getWrappersThatImplementFromMainBackpack(IInsertResponseUpgrade.class).forEach(u -> u.onAfterInsert(handler, slot));
@@ -18,8 +18,8 @@ public class NoopBackpackWrapper implements IBackpackWrapper {
 
 	private final ItemStack backpack = new ItemStack(ModItems.BACKPACK.get());
 	private final BackpackSettingsHandler settingsHandler = new BackpackSettingsHandler(new CompoundNBT(), () -> {});
-	private final BackpackUpgradeHandler backpackUpgradeHandler = new BackpackUpgradeHandler(0, this, new CompoundNBT(), () -> {}, () -> {});
-	private final BackpackInventoryHandler backpackInventoryHandler = new BackpackInventoryHandler(0, this, new CompoundNBT(), () -> {}, 64);
+	private final BackpackUpgradeHandler backpackUpgradeHandler = new BackpackUpgradeHandler(0, this, new CompoundNBT(), () -> {});
+	private final BackpackInventoryHandler backpackInventoryHandler = new BackpackInventoryHandler(0, backpackUpgradeHandler, new CompoundNBT(), () -> {}, 64);
 
 	private NoopBackpackWrapper() {}
 
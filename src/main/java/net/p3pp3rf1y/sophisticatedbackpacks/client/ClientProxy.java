@@ -20,6 +20,7 @@ import net.minecraft.util.math.EntityRayTraceResult;
 import net.minecraft.util.math.RayTraceResult;
 import net.minecraft.util.text.TranslationTextComponent;
 import net.minecraftforge.client.event.ClientPlayerNetworkEvent;
+import net.minecraftforge.client.event.RecipesUpdatedEvent;
 import net.minecraftforge.client.event.TextureStitchEvent;
 import net.minecraftforge.client.settings.IKeyConflictContext;
 import net.minecraftforge.client.settings.KeyConflictContext;
@@ -172,8 +173,10 @@ public class ClientProxy extends CommonProxy {
 		IEventBus eventBus = MinecraftForge.EVENT_BUS;
 		eventBus.addListener(ClientProxy::handleKeyInputEvent);
 		eventBus.addListener(ClientProxy::onPlayerJoinServer);
+		eventBus.addListener(ClientProxy::onRecipesUpdated);
 		eventBus.addListener(BackpackTooltipRenderer::renderBackpackTooltip);
 		eventBus.addListener(BackpackTooltipRenderer::onWorldLoad);
+		eventBus.addListener(BackpackTooltipRenderer::onPlayerLoggedOut);
 		eventBus.addListener(BackpackSoundHandler::tick);
 		eventBus.addListener(BackpackSoundHandler::onWorldUnload);
 	}
@@ -230,6 +233,11 @@ public class ClientProxy extends CommonProxy {
 		RecipeHelper.setWorld(Minecraft.getInstance().world);
 	}
 
+	@SuppressWarnings("unused") //need the Event parameter for forge reflection to understand what event this listens to
+	private static void onRecipesUpdated(RecipesUpdatedEvent evt) {
+		RecipeHelper.invalidateRecipeCaches();
+	}
+
 	private static class BackpackKeyConflictContext implements IKeyConflictContext {
 
 		public static final BackpackKeyConflictContext INSTANCE = new BackpackKeyConflictContext();
@@ -9,16 +9,20 @@ import net.minecraft.client.renderer.IRenderTypeBuffer;
 import net.minecraft.client.renderer.Tessellator;
 import net.minecraft.client.util.ITooltipFlag;
 import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.CompoundNBT;
 import net.minecraft.util.text.ITextComponent;
 import net.minecraft.util.text.StringTextComponent;
 import net.minecraft.util.text.TextFormatting;
 import net.minecraft.util.text.TranslationTextComponent;
+import net.minecraftforge.client.event.ClientPlayerNetworkEvent;
 import net.minecraftforge.client.event.RenderTooltipEvent;
 import net.minecraftforge.event.world.WorldEvent;
 import net.p3pp3rf1y.sophisticatedbackpacks.api.CapabilityBackpackWrapper;
 import net.p3pp3rf1y.sophisticatedbackpacks.api.IBackpackWrapper;
 import net.p3pp3rf1y.sophisticatedbackpacks.api.IUpgradeWrapper;
 import net.p3pp3rf1y.sophisticatedbackpacks.backpack.BackpackItem;
+import net.p3pp3rf1y.sophisticatedbackpacks.backpack.BackpackStorage;
+import net.p3pp3rf1y.sophisticatedbackpacks.backpack.wrapper.BackpackUpgradeHandler;
 import net.p3pp3rf1y.sophisticatedbackpacks.client.gui.utils.Dimension;
 import net.p3pp3rf1y.sophisticatedbackpacks.client.gui.utils.GuiHelper;
 import net.p3pp3rf1y.sophisticatedbackpacks.client.gui.utils.TextureBlitData;
@@ -26,14 +30,15 @@ import net.p3pp3rf1y.sophisticatedbackpacks.client.gui.utils.UV;
 import net.p3pp3rf1y.sophisticatedbackpacks.network.PacketHandler;
 import net.p3pp3rf1y.sophisticatedbackpacks.network.RequestBackpackInventoryContentsMessage;
 import net.p3pp3rf1y.sophisticatedbackpacks.util.CountAbbreviator;
-import net.p3pp3rf1y.sophisticatedbackpacks.util.InventoryHelper;
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.TreeMap;
 import java.util.UUID;
 
@@ -46,6 +51,14 @@ public class BackpackTooltipRenderer {
 	private static ContentsTooltipPart contentsTooltipPart;
 	@Nullable
 	private static UUID backpackUuid = null;
+	private static final int MAX_CACHED_SUMMARIES = 64;
+	private static final int UNKNOWN_CONTENTS_VERSION = -1;
+	private static final Map<UUID, ContentsSummary> contentsSummaries = new LinkedHashMap<UUID, ContentsSummary>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<UUID, ContentsSummary> eldest) {
+			return size() > MAX_CACHED_SUMMARIES;
+		}
+	};
 
 	@SuppressWarnings("unused") //parameter needs to be there so that addListener logic would know which event this method listens to
 	public static void onWorldLoad(WorldEvent.Load event) {
@@ -53,6 +66,12 @@ public class BackpackTooltipRenderer {
 		lastRequestTime = 0;
 	}
 
+	@SuppressWarnings("unused") //parameter needs to be there so that addListener logic would know which event this method listens to
+	public static void onPlayerLoggedOut(ClientPlayerNetworkEvent.LoggedOutEvent event) {
+		//versions are only valid for the server that sent them
+		contentsSummaries.clear();
+	}
+
 	public static void renderBackpackTooltip(RenderTooltipEvent.Pre event) {
 		ItemStack backpack = event.getStack();
 		Minecraft minecraft = Minecraft.getInstance();
@@ -88,7 +107,7 @@ public class BackpackTooltipRenderer {
 	private static void requestContents(ClientPlayerEntity player, IBackpackWrapper wrapper) {
 		if (lastRequestTime + REFRESH_INTERVAL < player.world.getGameTime()) {
 			lastRequestTime = player.world.getGameTime();
-			wrapper.getContentsUuid().ifPresent(uuid -> PacketHandler.sendToServer(new RequestBackpackInventoryContentsMessage(uuid)));
+			wrapper.getContentsUuid().ifPresent(uuid -> PacketHandler.sendToServer(new RequestBackpackInventoryContentsMessage(uuid, getContentsSummary(uuid).map(ContentsSummary::getVersion).orElse(UNKNOWN_CONTENTS_VERSION))));
 		}
 	}
 
@@ -96,9 +115,11 @@ public class BackpackTooltipRenderer {
 		if (shouldRefreshContents) {
 			shouldRefreshContents = false;
 			if (backpackUuid != null) {
+				Optional<ContentsSummary> contentsSummary = getContentsSummary(backpackUuid);
+				contentsSummary.ifPresent(summary -> summary.updateUpgradeInventory(backpackUuid));
 				wrapper.onContentsNbtUpdated();
-				List<ItemStack> sortedContents = InventoryHelper.getCompactedStacksSortedByCount(wrapper.getInventoryHandler());
-				contentsTooltipPart = new ContentsTooltipPart(minecraft, new TreeMap<>(wrapper.getUpgradeHandler().getSlotWrappers()), sortedContents);
+				contentsTooltipPart = new ContentsTooltipPart(minecraft, new TreeMap<>(wrapper.getUpgradeHandler().getSlotWrappers()),
+						contentsSummary.map(ContentsSummary::getSortedStacks).orElse(Collections.emptyList()));
 			} else {
 				contentsTooltipPart = getEmptyInventoryTooltip(minecraft);
 			}
@@ -112,11 +133,49 @@ public class BackpackTooltipRenderer {
 		return new ContentsTooltipPart(minecraft, new HashMap<>(), new ArrayList<>());
 	}
 
+	private static Optional<ContentsSummary> getContentsSummary(UUID uuid) {
+		return Optional.ofNullable(contentsSummaries.get(uuid));
+	}
+
+	public static void setContentsSummary(UUID uuid, int version, CompoundNBT upgradeInventory, List<ItemStack> sortedStacks) {
+		contentsSummaries.put(uuid, new ContentsSummary(version, upgradeInventory, sortedStacks));
+		if (uuid.equals(backpackUuid)) {
+			shouldRefreshContents = true;
+		}
+	}
+
 	//TODO this probably needs to move somewhere else, but there's no easy way to understand what STACK requested refresh of contents and tooltip is the only one at the moment
 	public static void refreshContents() {
 		shouldRefreshContents = true;
 	}
 
+	private static class ContentsSummary {
+		private final int version;
+		private final CompoundNBT upgradeInventory;
+		private final List<ItemStack> sortedStacks;
+
+		private ContentsSummary(int version, CompoundNBT upgradeInventory, List<ItemStack> sortedStacks) {
+			this.version = version;
+			this.upgradeInventory = upgradeInventory;
+			this.sortedStacks = sortedStacks;
+		}
+
+		public int getVersion() {
+			return version;
+		}
+
+		public List<ItemStack> getSortedStacks() {
+			return sortedStacks;
+		}
+
+		//client storage may have dropped the contents since the summary arrived so the upgrades are put back from here
+		private void updateUpgradeInventory(UUID uuid) {
+			CompoundNBT contents = new CompoundNBT();
+			contents.put(BackpackUpgradeHandler.UPGRADE_INVENTORY_TAG, upgradeInventory.copy());
+			BackpackStorage.get().setBackpackContents(uuid, contents);
+		}
+	}
+
 	private static class ContentsTooltipPart implements GuiHelper.ITooltipRenderPart {
 		private static final TextureBlitData UPGRADE_ON = new TextureBlitData(GuiHelper.GUI_CONTROLS, Dimension.SQUARE_256, new UV(81, 0), Dimension.RECTANGLE_4_10);
 		private static final TextureBlitData UPGRADE_OFF = new TextureBlitData(GuiHelper.GUI_CONTROLS, Dimension.SQUARE_256, new UV(77, 0), Dimension.RECTANGLE_4_10);
@@ -20,6 +20,7 @@ public class SBPCommand {
 						.then(ListCommand.register())
 						.then(GiveCommand.register())
 						.then(RemoveNonPlayerCommand.register())
+						.then(StorageStatisticsCommand.register())
 		);
 		dispatcher.register(Commands.literal("sophisticatedbackpacks").requires(cs -> cs.hasPermissionLevel(OP_LEVEL)).redirect(mainNode));
 	}
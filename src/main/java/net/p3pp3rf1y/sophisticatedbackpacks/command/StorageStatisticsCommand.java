@@ -0,0 +1,27 @@
+package net.p3pp3rf1y.sophisticatedbackpacks.command;
+
+import com.mojang.brigadier.builder.ArgumentBuilder;
+import net.minecraft.command.CommandSource;
+import net.minecraft.command.Commands;
+import net.minecraft.util.text.TranslationTextComponent;
+import net.p3pp3rf1y.sophisticatedbackpacks.backpack.BackpackStorage;
+import net.p3pp3rf1y.sophisticatedbackpacks.backpack.BackpackStorageStatistics;
+
+public class StorageStatisticsCommand {
+	private StorageStatisticsCommand() {}
+
+	@SuppressWarnings("java:S1452")
+	static ArgumentBuilder<CommandSource, ?> register() {
+		return Commands.literal("storageStatistics").executes(context -> sendStatistics(context.getSource()));
+	}
+
+	private static int sendStatistics(CommandSource source) {
+		BackpackStorage storage = BackpackStorage.get();
+		BackpackStorageStatistics statistics = storage.getStatistics();
+		source.sendFeedback(new TranslationTextComponent("commands.sophisticatedbackpacks.storage_statistics.changes",
+				statistics.getDirtyMarksPerSecond(), statistics.getTotalDirtyMarks(), storage.getDirtyBackpackUuids().size()), false);
+		source.sendFeedback(new TranslationTextComponent("commands.sophisticatedbackpacks.storage_statistics.saves",
+				statistics.getBackpacksWrittenInLastSave(), statistics.getChangedBackpacksInLastSave(), statistics.getTotalBackpacksWritten(), statistics.getSaves()), false);
+		return 0;
+	}
+}
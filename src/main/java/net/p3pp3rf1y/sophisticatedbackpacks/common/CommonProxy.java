@@ -34,14 +34,18 @@ import net.p3pp3rf1y.sophisticatedbackpacks.api.IAttackEntityResponseUpgrade;
 import net.p3pp3rf1y.sophisticatedbackpacks.api.IBackpackWrapper;
 import net.p3pp3rf1y.sophisticatedbackpacks.api.IBlockClickResponseUpgrade;
 import net.p3pp3rf1y.sophisticatedbackpacks.backpack.BackpackItem;
+import net.p3pp3rf1y.sophisticatedbackpacks.backpack.BackpackTickScheduler;
 import net.p3pp3rf1y.sophisticatedbackpacks.backpack.wrapper.BackpackWrapper;
 import net.p3pp3rf1y.sophisticatedbackpacks.init.ModBlocks;
 import net.p3pp3rf1y.sophisticatedbackpacks.init.ModItems;
 import net.p3pp3rf1y.sophisticatedbackpacks.registry.RegistryLoader;
+import net.p3pp3rf1y.sophisticatedbackpacks.upgrades.FilterMatcher;
 import net.p3pp3rf1y.sophisticatedbackpacks.upgrades.jukebox.ServerBackpackSoundHandler;
+import net.p3pp3rf1y.sophisticatedbackpacks.upgrades.magnet.MagnetItemEntityIndex;
 import net.p3pp3rf1y.sophisticatedbackpacks.util.InventoryHelper;
 import net.p3pp3rf1y.sophisticatedbackpacks.util.PlayerInventoryProvider;
 import net.p3pp3rf1y.sophisticatedbackpacks.util.RandHelper;
+import net.p3pp3rf1y.sophisticatedbackpacks.util.RecipeHelper;
 
 import java.util.Random;
 
@@ -60,9 +64,17 @@ public class CommonProxy {
 		eventBus.addListener(this::onEntityMobGriefing);
 		eventBus.addListener(this::onEntityLeaveWorld);
 		eventBus.addListener(ServerBackpackSoundHandler::tick);
+		eventBus.addListener(BackpackTickScheduler::tick);
+		eventBus.addListener(BackpackTickScheduler::onWorldUnload);
+		eventBus.addListener(BackpackTickScheduler::onWorldSave);
+		eventBus.addListener(BackpackTickScheduler::onServerStopping);
+		eventBus.addListener(MagnetItemEntityIndex::onWorldUnload);
+		eventBus.addListener(FilterMatcher::onTagsUpdated);
+		eventBus.addListener(RecipeHelper::onWorldTick);
 		eventBus.addListener(this::onBlockClick);
 		eventBus.addListener(this::onAttackEntity);
 		eventBus.addListener(EntityBackpackAdditionHandler::onLivingUpdate);
+		eventBus.addListener(PlayerInventoryProvider::onEquipmentChange);
 		eventBus.addListener(this::onAddReloadListener);
 	}
 
@@ -110,7 +122,7 @@ public class CommonProxy {
 	private void onBlockClick(PlayerInteractEvent.LeftClickBlock event) {
 		PlayerEntity player = event.getPlayer();
 		BlockPos pos = event.getPos();
-		PlayerInventoryProvider.runOnBackpacks(player, (backpack, inventoryHandlerName, slot) -> backpack.getCapability(CapabilityBackpackWrapper.getCapabilityInstance())
+		PlayerInventoryProvider.runOnKnownBackpacks(player, (backpack, inventoryHandlerName, slot) -> backpack.getCapability(CapabilityBackpackWrapper.getCapabilityInstance())
 				.map(wrapper -> {
 					for (IBlockClickResponseUpgrade upgrade : wrapper.getUpgradeHandler().getWrappersThatImplement(IBlockClickResponseUpgrade.class)) {
 						if (upgrade.onBlockClick(player, pos)) {
@@ -123,7 +135,7 @@ public class CommonProxy {
 
 	private void onAttackEntity(AttackEntityEvent event) {
 		PlayerEntity player = event.getPlayer();
-		PlayerInventoryProvider.runOnBackpacks(player, (backpack, inventoryHandlerName, slot) -> backpack.getCapability(CapabilityBackpackWrapper.getCapabilityInstance())
+		PlayerInventoryProvider.runOnKnownBackpacks(player, (backpack, inventoryHandlerName, slot) -> backpack.getCapability(CapabilityBackpackWrapper.getCapabilityInstance())
 				.map(wrapper -> {
 					for (IAttackEntityResponseUpgrade upgrade : wrapper.getUpgradeHandler().getWrappersThatImplement(IAttackEntityResponseUpgrade.class)) {
 						if (upgrade.onAttackEntity(player)) {
@@ -166,11 +178,11 @@ public class CommonProxy {
 		ItemStack remainingStackSimulated = itemEntity.getItem().copy();
 		PlayerEntity player = event.getPlayer();
 		World world = player.getEntityWorld();
-		PlayerInventoryProvider.runOnBackpacks(player, (backpack, inventoryHandlerName, slot) -> backpack.getCapability(CapabilityBackpackWrapper.getCapabilityInstance())
+		PlayerInventoryProvider.runOnKnownBackpacks(player, (backpack, inventoryHandlerName, slot) -> backpack.getCapability(CapabilityBackpackWrapper.getCapabilityInstance())
 				.map(wrapper -> InventoryHelper.runPickupOnBackpack(world, remainingStackSimulated, wrapper, true)).orElse(false));
 		if (remainingStackSimulated.isEmpty()) {
 			ItemStack remainingStack = itemEntity.getItem().copy();
-			PlayerInventoryProvider.runOnBackpacks(player, (backpack, inventoryHandlerName, slot) -> backpack.getCapability(CapabilityBackpackWrapper.getCapabilityInstance())
+			PlayerInventoryProvider.runOnKnownBackpacks(player, (backpack, inventoryHandlerName, slot) -> backpack.getCapability(CapabilityBackpackWrapper.getCapabilityInstance())
 					.map(wrapper -> InventoryHelper.runPickupOnBackpack(world, remainingStack, wrapper, false)).orElse(false)
 			);
 			if (!itemEntity.isSilent()) {
@@ -179,6 +191,9 @@ public class CommonProxy {
 			}
 			itemEntity.setItem(ItemStack.EMPTY);
 			event.setCanceled(true);
+		} else if (itemEntity.getItem().getItem() instanceof BackpackItem) {
+			//backpack is about to be added to player's inventory
+			PlayerInventoryProvider.invalidateBackpackLocations(player);
 		}
 	}
 
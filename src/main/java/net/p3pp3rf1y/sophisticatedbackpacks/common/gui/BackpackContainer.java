@@ -57,6 +57,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import static net.p3pp3rf1y.sophisticatedbackpacks.init.ModItems.BACKPACK_CONTAINER_TYPE;
 
@@ -68,6 +69,8 @@ public class BackpackContainer extends Container implements ISyncedContainer {
 	private static final String UPGRADE_ENABLED_TAG = "upgradeEnabled";
 	private static final String UPGRADE_SLOT_TAG = "upgradeSlot";
 	private static final String ACTION_TAG = "action";
+	//stacks changed in place without handler being notified are only caught by comparing all backpack slots which is done every this many checks
+	private static final int CHECKS_BETWEEN_FULL_COMPARISONS = 20;
 
 	private final IBackpackWrapper backpackWrapper;
 	private final PlayerEntity player;
@@ -92,7 +95,16 @@ public class BackpackContainer extends Container implements ISyncedContainer {
 
 	private boolean isUpdatingFromPacket = false;
 
-	private CompoundNBT lastSettingsNbt = null;
+	@Nullable
+	private BackpackSettingsHandler lastSettingsHandler = null;
+	private int lastSettingsVersion = -1;
+	@Nullable
+	private BackpackInventoryHandler lastInventoryHandler = null;
+	private int lastInventoryVersion = -1;
+	@Nullable
+	private BackpackUpgradeHandler lastUpgradeHandler = null;
+	private int lastUpgradesVersion = -1;
+	private int checksSinceFullComparison = 0;
 
 	public BackpackContainer(int windowId, PlayerEntity player, BackpackContext backpackContext) {
 		super(BACKPACK_CONTAINER_TYPE.get(), windowId);
@@ -130,6 +142,10 @@ public class BackpackContainer extends Container implements ISyncedContainer {
 		});
 	}
 
+	public IBackpackWrapper getBackpackWrapper() {
+		return backpackWrapper;
+	}
+
 	public IBackpackWrapper getParentBackpackWrapper() {
 		return parentBackpackWrapper;
 	}
@@ -737,18 +753,58 @@ public class BackpackContainer extends Container implements ISyncedContainer {
 		if (backpackSlotNumber != -1) {
 			closeBackpackScreenIfSomethingMessedWithBackpackStack(getSlot(backpackSlotNumber).getStack());
 		}
-		detectAndSendChangesIn(upgradeItemStacks, upgradeSlots);
-		detectAndSendChangesIn(realInventoryItemStacks, realInventorySlots);
-		if (lastSettingsNbt == null || !lastSettingsNbt.equals(backpackWrapper.getSettingsHandler().getNbt())) {
-			lastSettingsNbt = backpackWrapper.getSettingsHandler().getNbt().copy();
+		if (++checksSinceFullComparison >= CHECKS_BETWEEN_FULL_COMPARISONS) {
+			checksSinceFullComparison = 0;
+			lastInventoryVersion = -1;
+			lastUpgradesVersion = -1;
+		}
+		detectAndSendUpgradeChanges();
+		detectAndSendInventoryChanges();
+		HighStackCountListener.sendPendingChanges(listeners);
+		BackpackSettingsHandler settingsHandler = backpackWrapper.getSettingsHandler();
+		if (lastSettingsHandler != settingsHandler || lastSettingsVersion != settingsHandler.getVersion()) {
+			lastSettingsHandler = settingsHandler;
+			lastSettingsVersion = settingsHandler.getVersion();
 			sendBackpackSettingsToClient();
 			refreshInventorySlotsIfNeeded();
 		}
 	}
 
-	private void detectAndSendChangesIn(NonNullList<ItemStack> stacksCollection, List<Slot> slotsCollection) {
+	private void detectAndSendUpgradeChanges() {
+		BackpackUpgradeHandler upgradeHandler = backpackWrapper.getUpgradeHandler();
+		//upgrade state changed while ticking needs to be written to upgrade stacks for the progress to sync to client
+		upgradeHandler.flushUpgradeStates();
+		if (lastUpgradeHandler != upgradeHandler) {
+			lastUpgradeHandler = upgradeHandler;
+			lastUpgradesVersion = -1;
+		}
+		int upgradesVersion = upgradeHandler.getContentsVersion();
+		int lastVersion = lastUpgradesVersion;
+		detectAndSendChangesIn(upgradeItemStacks, upgradeSlots, slot -> slot instanceof BackpackUpgradeSlot
+				&& ((BackpackUpgradeSlot) slot).getItemHandler() == upgradeHandler && !upgradeHandler.hasSlotChangedSince(slot.getSlotIndex(), lastVersion));
+		lastUpgradesVersion = upgradesVersion;
+	}
+
+	private void detectAndSendInventoryChanges() {
+		BackpackInventoryHandler inventoryHandler = backpackWrapper.getInventoryHandler();
+		if (lastInventoryHandler != inventoryHandler) {
+			lastInventoryHandler = inventoryHandler;
+			lastInventoryVersion = -1;
+		}
+		int inventoryVersion = inventoryHandler.getContentsVersion();
+		int lastVersion = lastInventoryVersion;
+		detectAndSendChangesIn(realInventoryItemStacks, realInventorySlots, slot -> slot instanceof BackpackInventorySlot
+				&& ((BackpackInventorySlot) slot).getItemHandler() == inventoryHandler && !inventoryHandler.hasSlotChangedSince(slot.getSlotIndex(), lastVersion));
+		lastInventoryVersion = inventoryVersion;
+	}
+
+	//backpack slots are only compared when their handler reports a change since the last check, all other slots every time
+	private void detectAndSendChangesIn(NonNullList<ItemStack> stacksCollection, List<Slot> slotsCollection, Predicate<Slot> isKnownUnchanged) {
 		for (int i = 0; i < slotsCollection.size(); ++i) {
 			Slot slot = slotsCollection.get(i);
+			if (isKnownUnchanged.test(slot)) {
+				continue;
+			}
 			ItemStack currentStack = slot.getStack();
 			ItemStack previousStack = stacksCollection.get(i);
 			if (!ItemStack.areItemStacksEqual(previousStack, currentStack)) {
@@ -787,6 +843,7 @@ public class BackpackContainer extends Container implements ISyncedContainer {
 		inventoryItemStacks.clear();
 		realInventorySlots.clear();
 		realInventoryItemStacks.clear();
+		lastInventoryVersion = -1;
 		int yPosition = addBackpackInventorySlots();
 		addPlayerInventorySlots(player.inventory, yPosition, backpackContext.getBackpackSlotIndex(), backpackContext.shouldLockBackpackSlot());
 	}
@@ -7,28 +7,82 @@ import net.minecraft.inventory.container.IContainerListener;
 import net.minecraft.item.ItemStack;
 import net.minecraft.network.play.server.SSetSlotPacket;
 import net.minecraft.util.NonNullList;
+import net.minecraftforge.items.ItemHandlerHelper;
 import net.p3pp3rf1y.sophisticatedbackpacks.network.PacketHandler;
 import net.p3pp3rf1y.sophisticatedbackpacks.network.SyncContainerStacksMessage;
-import net.p3pp3rf1y.sophisticatedbackpacks.network.SyncSlotStackMessage;
+import net.p3pp3rf1y.sophisticatedbackpacks.network.SyncSlotStacksMessage;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 public class HighStackCountListener implements IContainerListener {
 	private final ServerPlayerEntity player;
+	private final Map<Integer, ItemStack> pendingSlotStacks = new TreeMap<>();
+	private final Map<Integer, ItemStack> lastSentSlotStacks = new HashMap<>();
+	private int pendingWindowId = -1;
 
 	public HighStackCountListener(ServerPlayerEntity player) {
 		this.player = player;
 	}
 
+	public static void sendPendingChanges(List<IContainerListener> listeners) {
+		for (IContainerListener listener : listeners) {
+			if (listener instanceof HighStackCountListener) {
+				((HighStackCountListener) listener).sendPendingChanges();
+			}
+		}
+	}
+
 	@Override
 	public void sendAllContents(Container containerToSend, NonNullList<ItemStack> itemsList) {
+		pendingSlotStacks.clear();
+		lastSentSlotStacks.clear();
+		for (int slot = 0; slot < itemsList.size(); slot++) {
+			lastSentSlotStacks.put(slot, itemsList.get(slot).copy());
+		}
 		PacketHandler.sendToClient(player, new SyncContainerStacksMessage(containerToSend.windowId, itemsList));
 		player.connection.sendPacket(new SSetSlotPacket(-1, -1, player.inventory.getItemStack()));
 	}
 
 	@Override
 	public void sendSlotContents(Container containerToSend, int slotInd, ItemStack stack) {
-		if (!(containerToSend.getSlot(slotInd) instanceof CraftingResultSlot) && !player.isChangingQuantityOnly) {
-			PacketHandler.sendToClient(player, new SyncSlotStackMessage(containerToSend.windowId, slotInd, stack));
+		if (containerToSend.getSlot(slotInd) instanceof CraftingResultSlot) {
+			return;
+		}
+		if (player.isChangingQuantityOnly) {
+			//client changed the slot itself so what was last sent is no longer what client has and the next change needs to send the whole stack
+			if (pendingWindowId == containerToSend.windowId) {
+				pendingSlotStacks.remove(slotInd);
+			}
+			lastSentSlotStacks.remove(slotInd);
+			return;
 		}
+		if (pendingWindowId != containerToSend.windowId) {
+			sendPendingChanges();
+			pendingWindowId = containerToSend.windowId;
+		}
+		pendingSlotStacks.put(slotInd, stack);
+	}
+
+	public void sendPendingChanges() {
+		if (pendingSlotStacks.isEmpty()) {
+			return;
+		}
+
+		SyncSlotStacksMessage message = new SyncSlotStacksMessage(pendingWindowId);
+		pendingSlotStacks.forEach((slot, stack) -> {
+			ItemStack lastSentStack = lastSentSlotStacks.get(slot);
+			if (lastSentStack != null && !stack.isEmpty() && ItemHandlerHelper.canItemStacksStack(lastSentStack, stack)) {
+				message.addCountChange(slot, stack.getCount());
+			} else {
+				message.addStackChange(slot, stack);
+			}
+			lastSentSlotStacks.put(slot, stack);
+		});
+		pendingSlotStacks.clear();
+		PacketHandler.sendToClient(player, message);
 	}
 
 	@Override
@@ -28,6 +28,7 @@ import net.p3pp3rf1y.sophisticatedbackpacks.settings.backpack.BackpackSettingsCo
 import net.p3pp3rf1y.sophisticatedbackpacks.settings.nosort.NoSortSettingsCategory;
 import net.p3pp3rf1y.sophisticatedbackpacks.settings.nosort.NoSortSettingsContainer;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -54,7 +55,9 @@ public class SettingsContainer extends Container implements IContextAwareContain
 	public final NonNullList<ItemStack> ghostItemStacks = NonNullList.create();
 	private final Map<String, SettingsContainerBase<?>> settingsContainers = new LinkedHashMap<>();
 	public final List<Slot> ghostSlots = new ArrayList<>();
-	private CompoundNBT lastSettingsNbt = null;
+	@Nullable
+	private BackpackSettingsHandler lastSettingsHandler = null;
+	private int lastSettingsVersion = -1;
 
 	protected SettingsContainer(int windowId, PlayerEntity player, BackpackContext backpackContext) {
 		super(SETTINGS_CONTAINER_TYPE.get(), windowId);
@@ -116,9 +119,12 @@ public class SettingsContainer extends Container implements IContextAwareContain
 				}
 			}
 		}
+		HighStackCountListener.sendPendingChanges(listeners);
 
-		if (lastSettingsNbt == null || !lastSettingsNbt.equals(backpackWrapper.getSettingsHandler().getNbt())) {
-			lastSettingsNbt = backpackWrapper.getSettingsHandler().getNbt().copy();
+		BackpackSettingsHandler settingsHandler = backpackWrapper.getSettingsHandler();
+		if (lastSettingsHandler != settingsHandler || lastSettingsVersion != settingsHandler.getVersion()) {
+			lastSettingsHandler = settingsHandler;
+			lastSettingsVersion = settingsHandler.getVersion();
 			sendBackpackSettingsToClient();
 		}
 	}
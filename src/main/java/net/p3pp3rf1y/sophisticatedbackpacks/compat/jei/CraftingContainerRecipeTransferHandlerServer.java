@@ -12,6 +12,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class CraftingContainerRecipeTransferHandlerServer {
 	private CraftingContainerRecipeTransferHandlerServer() {}
@@ -38,16 +39,24 @@ public class CraftingContainerRecipeTransferHandlerServer {
 			slotMap.put(entry.getKey(), stack);
 		}
 
-		Map<Integer, ItemStack> toTransfer = removeItemsFromInventory(player, container, slotMap, craftingSlots, inventorySlots, maxTransfer);
+		AtomicBoolean transferred = new AtomicBoolean(false);
+		container.getBackpackWrapper().getInventoryHandler().runInBatch(() -> {
+			Map<Integer, ItemStack> toTransfer = removeItemsFromInventory(player, container, slotMap, craftingSlots, inventorySlots, maxTransfer);
 
-		if (toTransfer.isEmpty()) {
-			return;
-		}
+			if (toTransfer.isEmpty()) {
+				return;
+			}
 
-		// clear the crafting grid
-		List<ItemStack> clearedCraftingItems = clearAndPutItemsIntoGrid(player, craftingSlots, container, toTransfer);
+			// clear the crafting grid
+			List<ItemStack> clearedCraftingItems = clearAndPutItemsIntoGrid(player, craftingSlots, container, toTransfer);
 
-		putIntoInventory(player, inventorySlots, container, clearedCraftingItems);
+			putIntoInventory(player, inventorySlots, container, clearedCraftingItems);
+			transferred.set(true);
+		});
+
+		if (!transferred.get()) {
+			return;
+		}
 
 		container.sendSlotUpdates();
 		container.detectAndSendChanges();
@@ -225,11 +234,13 @@ public class CraftingContainerRecipeTransferHandlerServer {
 						// Enough space
 						if (space >= remain) {
 							inventoryStack.grow(remain);
+							slot.onSlotChanged();
 							return stack.getCount();
 						}
 
 						// Not enough space
 						inventoryStack.setCount(maxStackSize);
+						slot.onSlotChanged();
 
 						added += space;
 					}
@@ -0,0 +1,78 @@
+package net.p3pp3rf1y.sophisticatedbackpacks.network;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.entity.player.ClientPlayerEntity;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.CompoundNBT;
+import net.minecraft.network.PacketBuffer;
+import net.minecraftforge.fml.network.NetworkEvent;
+import net.p3pp3rf1y.sophisticatedbackpacks.client.render.BackpackTooltipRenderer;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+public class BackpackContentsSummaryMessage {
+	private final UUID backpackUuid;
+	private final int contentsVersion;
+	//null when contents haven't changed since the version client already has
+	@Nullable
+	private final CompoundNBT upgradeInventory;
+	private final List<ItemStack> sortedStacks;
+
+	public BackpackContentsSummaryMessage(UUID backpackUuid, int contentsVersion, @Nullable CompoundNBT upgradeInventory, List<ItemStack> sortedStacks) {
+		this.backpackUuid = backpackUuid;
+		this.contentsVersion = contentsVersion;
+		this.upgradeInventory = upgradeInventory;
+		this.sortedStacks = sortedStacks;
+	}
+
+	public static BackpackContentsSummaryMessage unchanged(UUID backpackUuid, int contentsVersion) {
+		return new BackpackContentsSummaryMessage(backpackUuid, contentsVersion, null, Collections.emptyList());
+	}
+
+	public static void encode(BackpackContentsSummaryMessage msg, PacketBuffer packetBuffer) {
+		packetBuffer.writeUniqueId(msg.backpackUuid);
+		packetBuffer.writeInt(msg.contentsVersion);
+		packetBuffer.writeBoolean(msg.upgradeInventory != null);
+		if (msg.upgradeInventory == null) {
+			return;
+		}
+		packetBuffer.writeCompoundTag(msg.upgradeInventory);
+		packetBuffer.writeVarInt(msg.sortedStacks.size());
+		msg.sortedStacks.forEach(stack -> PacketHelper.writeItemStack(stack, packetBuffer));
+	}
+
+	public static BackpackContentsSummaryMessage decode(PacketBuffer packetBuffer) {
+		UUID backpackUuid = packetBuffer.readUniqueId();
+		int contentsVersion = packetBuffer.readInt();
+		if (!packetBuffer.readBoolean()) {
+			return unchanged(backpackUuid, contentsVersion);
+		}
+		CompoundNBT upgradeInventory = packetBuffer.readCompoundTag();
+		int size = packetBuffer.readVarInt();
+		List<ItemStack> sortedStacks = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			sortedStacks.add(PacketHelper.readItemStack(packetBuffer));
+		}
+		return new BackpackContentsSummaryMessage(backpackUuid, contentsVersion, upgradeInventory == null ? new CompoundNBT() : upgradeInventory, sortedStacks);
+	}
+
+	static void onMessage(BackpackContentsSummaryMessage msg, Supplier<NetworkEvent.Context> contextSupplier) {
+		NetworkEvent.Context context = contextSupplier.get();
+		context.enqueueWork(() -> handleMessage(msg));
+		context.setPacketHandled(true);
+	}
+
+	private static void handleMessage(BackpackContentsSummaryMessage msg) {
+		ClientPlayerEntity player = Minecraft.getInstance().player;
+		if (player == null || msg.upgradeInventory == null) {
+			return;
+		}
+
+		BackpackTooltipRenderer.setContentsSummary(msg.backpackUuid, msg.contentsVersion, msg.upgradeInventory, msg.sortedStacks);
+	}
+}
@@ -1,31 +1,41 @@
 package net.p3pp3rf1y.sophisticatedbackpacks.network;
 
 import net.minecraft.entity.player.ServerPlayerEntity;
+import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.CompoundNBT;
-import net.minecraft.nbt.INBT;
 import net.minecraft.network.PacketBuffer;
 import net.minecraftforge.fml.network.NetworkEvent;
 import net.p3pp3rf1y.sophisticatedbackpacks.backpack.BackpackStorage;
 import net.p3pp3rf1y.sophisticatedbackpacks.backpack.wrapper.BackpackInventoryHandler;
 import net.p3pp3rf1y.sophisticatedbackpacks.backpack.wrapper.BackpackUpgradeHandler;
+import net.p3pp3rf1y.sophisticatedbackpacks.util.InventoryHelper;
+import net.p3pp3rf1y.sophisticatedbackpacks.util.ItemStackKey;
 
 import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.function.Supplier;
 
 public class RequestBackpackInventoryContentsMessage {
+	private static final int MAX_SUMMARY_STACKS = 81;
+
 	private final UUID backpackUuid;
+	private final int knownContentsVersion;
 
-	public RequestBackpackInventoryContentsMessage(UUID backpackUuid) {
+	public RequestBackpackInventoryContentsMessage(UUID backpackUuid, int knownContentsVersion) {
 		this.backpackUuid = backpackUuid;
+		this.knownContentsVersion = knownContentsVersion;
 	}
 
 	public static void encode(RequestBackpackInventoryContentsMessage msg, PacketBuffer packetBuffer) {
 		packetBuffer.writeUniqueId(msg.backpackUuid);
+		packetBuffer.writeInt(msg.knownContentsVersion);
 	}
 
 	public static RequestBackpackInventoryContentsMessage decode(PacketBuffer packetBuffer) {
-		return new RequestBackpackInventoryContentsMessage(packetBuffer.readUniqueId());
+		return new RequestBackpackInventoryContentsMessage(packetBuffer.readUniqueId(), packetBuffer.readInt());
 	}
 
 	static void onMessage(RequestBackpackInventoryContentsMessage msg, Supplier<NetworkEvent.Context> contextSupplier) {
@@ -39,18 +49,20 @@ public class RequestBackpackInventoryContentsMessage {
 			return;
 		}
 
-		CompoundNBT backpackContents = BackpackStorage.get().getOrCreateBackpackContents(msg.backpackUuid);
-
-		CompoundNBT inventoryContents = new CompoundNBT();
-		INBT inventoryNbt = backpackContents.get(BackpackInventoryHandler.INVENTORY_TAG);
-		if (inventoryNbt != null) {
-			inventoryContents.put(BackpackInventoryHandler.INVENTORY_TAG, inventoryNbt);
-		}
-		INBT upgradeNbt = backpackContents.get(BackpackUpgradeHandler.UPGRADE_INVENTORY_TAG);
-		if (upgradeNbt != null) {
-			inventoryContents.put(BackpackUpgradeHandler.UPGRADE_INVENTORY_TAG, upgradeNbt);
+		BackpackStorage storage = BackpackStorage.get();
+		CompoundNBT backpackContents = storage.getOrCreateBackpackContents(msg.backpackUuid);
+		int contentsVersion = storage.getContentsVersion(msg.backpackUuid);
+		if (contentsVersion == msg.knownContentsVersion) {
+			PacketHandler.sendToClient(player, BackpackContentsSummaryMessage.unchanged(msg.backpackUuid, contentsVersion));
+			return;
 		}
 
-		PacketHandler.sendToClient(player, new BackpackContentsMessage(msg.backpackUuid, inventoryContents));
+		Map<ItemStackKey, Integer> compactedStacks = new HashMap<>();
+		BackpackInventoryHandler.iterateStacks(backpackContents.getCompound(BackpackInventoryHandler.INVENTORY_TAG),
+				stack -> compactedStacks.merge(new ItemStackKey(stack), stack.getCount(), Integer::sum));
+		List<ItemStack> sortedStacks = InventoryHelper.getCompactedStacksSortedByCount(compactedStacks, MAX_SUMMARY_STACKS);
+
+		PacketHandler.sendToClient(player, new BackpackContentsSummaryMessage(msg.backpackUuid, contentsVersion,
+				backpackContents.getCompound(BackpackUpgradeHandler.UPGRADE_INVENTORY_TAG), sortedStacks));
 	}
 }
@@ -0,0 +1,44 @@
+package net.p3pp3rf1y.sophisticatedbackpacks.network;
+
+import net.minecraft.entity.player.ServerPlayerEntity;
+import net.minecraft.inventory.container.Container;
+import net.minecraft.network.PacketBuffer;
+import net.minecraftforge.fml.network.NetworkEvent;
+import net.p3pp3rf1y.sophisticatedbackpacks.common.gui.BackpackContainer;
+import net.p3pp3rf1y.sophisticatedbackpacks.common.gui.SettingsContainer;
+
+import javax.annotation.Nullable;
+import java.util.function.Supplier;
+
+public class RequestContainerSyncMessage {
+	private final int windowId;
+
+	public RequestContainerSyncMessage(int windowId) {
+		this.windowId = windowId;
+	}
+
+	public static void encode(RequestContainerSyncMessage msg, PacketBuffer packetBuffer) {
+		packetBuffer.writeByte(msg.windowId);
+	}
+
+	public static RequestContainerSyncMessage decode(PacketBuffer packetBuffer) {
+		return new RequestContainerSyncMessage(packetBuffer.readUnsignedByte());
+	}
+
+	static void onMessage(RequestContainerSyncMessage msg, Supplier<NetworkEvent.Context> contextSupplier) {
+		NetworkEvent.Context context = contextSupplier.get();
+		context.enqueueWork(() -> handleMessage(context.getSender(), msg));
+		context.setPacketHandled(true);
+	}
+
+	private static void handleMessage(@Nullable ServerPlayerEntity player, RequestContainerSyncMessage msg) {
+		if (player == null) {
+			return;
+		}
+		Container container = player.openContainer;
+		if (!(container instanceof BackpackContainer || container instanceof SettingsContainer) || container.windowId != msg.windowId) {
+			return;
+		}
+		PacketHandler.sendToClient(player, new SyncContainerStacksMessage(container.windowId, container.getInventory()));
+	}
+}
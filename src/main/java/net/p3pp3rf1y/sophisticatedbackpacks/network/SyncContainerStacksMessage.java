@@ -7,6 +7,7 @@ import net.minecraft.network.PacketBuffer;
 import net.minecraft.util.NonNullList;
 import net.minecraftforge.fml.network.NetworkEvent;
 import net.p3pp3rf1y.sophisticatedbackpacks.common.gui.BackpackContainer;
+import net.p3pp3rf1y.sophisticatedbackpacks.common.gui.SettingsContainer;
 
 import java.util.List;
 import java.util.function.Supplier;
@@ -49,7 +50,7 @@ public class SyncContainerStacksMessage {
 
 	private static void handleMessage(SyncContainerStacksMessage msg) {
 		ClientPlayerEntity player = Minecraft.getInstance().player;
-		if (player == null || !(player.openContainer instanceof BackpackContainer) || player.openContainer.windowId != msg.windowId) {
+		if (player == null || !(player.openContainer instanceof BackpackContainer || player.openContainer instanceof SettingsContainer) || player.openContainer.windowId != msg.windowId) {
 			return;
 		}
 		player.openContainer.setAll(msg.itemStacks);
@@ -0,0 +1,117 @@
+package net.p3pp3rf1y.sophisticatedbackpacks.network;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.entity.player.ClientPlayerEntity;
+import net.minecraft.inventory.container.Container;
+import net.minecraft.item.ItemStack;
+import net.minecraft.network.PacketBuffer;
+import net.minecraftforge.fml.network.NetworkEvent;
+import net.p3pp3rf1y.sophisticatedbackpacks.common.gui.BackpackContainer;
+import net.p3pp3rf1y.sophisticatedbackpacks.common.gui.SettingsContainer;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+public class SyncSlotStacksMessage {
+	private final int windowId;
+	private final List<SlotChange> slotChanges;
+
+	public SyncSlotStacksMessage(int windowId) {
+		this(windowId, new ArrayList<>());
+	}
+
+	private SyncSlotStacksMessage(int windowId, List<SlotChange> slotChanges) {
+		this.windowId = windowId;
+		this.slotChanges = slotChanges;
+	}
+
+	public void addStackChange(int slotNumber, ItemStack stack) {
+		slotChanges.add(new SlotChange(slotNumber, stack.getCount(), stack));
+	}
+
+	public void addCountChange(int slotNumber, int count) {
+		slotChanges.add(new SlotChange(slotNumber, count, null));
+	}
+
+	public static void encode(SyncSlotStacksMessage msg, PacketBuffer packetBuffer) {
+		packetBuffer.writeByte(msg.windowId);
+		packetBuffer.writeVarInt(msg.slotChanges.size());
+		for (SlotChange slotChange : msg.slotChanges) {
+			packetBuffer.writeShort(slotChange.slotNumber);
+			packetBuffer.writeBoolean(slotChange.stack == null);
+			if (slotChange.stack == null) {
+				packetBuffer.writeVarInt(slotChange.count);
+			} else {
+				PacketHelper.writeItemStack(slotChange.stack, packetBuffer);
+			}
+		}
+	}
+
+	public static SyncSlotStacksMessage decode(PacketBuffer packetBuffer) {
+		int windowId = packetBuffer.readUnsignedByte();
+		int changes = packetBuffer.readVarInt();
+		List<SlotChange> slotChanges = new ArrayList<>();
+		for (int i = 0; i < changes; i++) {
+			int slotNumber = packetBuffer.readShort();
+			if (packetBuffer.readBoolean()) {
+				slotChanges.add(new SlotChange(slotNumber, packetBuffer.readVarInt(), null));
+			} else {
+				ItemStack stack = PacketHelper.readItemStack(packetBuffer);
+				slotChanges.add(new SlotChange(slotNumber, stack.getCount(), stack));
+			}
+		}
+		return new SyncSlotStacksMessage(windowId, slotChanges);
+	}
+
+	static void onMessage(SyncSlotStacksMessage msg, Supplier<NetworkEvent.Context> contextSupplier) {
+		NetworkEvent.Context context = contextSupplier.get();
+		context.enqueueWork(() -> handleMessage(msg));
+		context.setPacketHandled(true);
+	}
+
+	private static void handleMessage(SyncSlotStacksMessage msg) {
+		ClientPlayerEntity player = Minecraft.getInstance().player;
+		if (player == null || !(player.openContainer instanceof BackpackContainer || player.openContainer instanceof SettingsContainer) || player.openContainer.windowId != msg.windowId) {
+			return;
+		}
+		if (!msg.applyTo(player.openContainer)) {
+			PacketHandler.sendToServer(new RequestContainerSyncMessage(msg.windowId));
+		}
+	}
+
+	//returns false if there was a count change for slot that is empty on client, then the rest of that stack is unknown and all stacks need to be synced again
+	boolean applyTo(Container container) {
+		boolean allApplied = true;
+		for (SlotChange slotChange : slotChanges) {
+			if (slotChange.stack != null) {
+				container.putStackInSlot(slotChange.slotNumber, slotChange.stack);
+				continue;
+			}
+			ItemStack slotStack = container.getSlot(slotChange.slotNumber).getStack();
+			if (slotStack.isEmpty()) {
+				allApplied = false;
+				continue;
+			}
+			ItemStack updatedStack = slotStack.copy();
+			updatedStack.setCount(slotChange.count);
+			container.putStackInSlot(slotChange.slotNumber, updatedStack);
+		}
+		return allApplied;
+	}
+
+	private static class SlotChange {
+		private final int slotNumber;
+		private final int count;
+		//null when only the count changed and client already has the rest of the stack
+		@Nullable
+		private final ItemStack stack;
+
+		private SlotChange(int slotNumber, int count, @Nullable ItemStack stack) {
+			this.slotNumber = slotNumber;
+			this.count = count;
+			this.stack = stack;
+		}
+	}
+}
@@ -2,16 +2,25 @@ package net.p3pp3rf1y.sophisticatedbackpacks.upgrades;
 
 import net.minecraft.item.ItemStack;
 import net.minecraftforge.items.IItemHandler;
+import net.p3pp3rf1y.sophisticatedbackpacks.backpack.wrapper.ISlotIndexedItemHandler;
 import net.p3pp3rf1y.sophisticatedbackpacks.util.InventoryHelper;
 import net.p3pp3rf1y.sophisticatedbackpacks.util.ItemStackKey;
 import net.p3pp3rf1y.sophisticatedbackpacks.util.NBTHelper;
 
-import java.util.HashSet;
+import javax.annotation.Nullable;
+import java.util.Collections;
 import java.util.Set;
 import java.util.function.Consumer;
 
 public class ContentsFilterLogic extends FilterLogic {
-	private Set<ItemStackKey> backpackFilterStacks = new HashSet<>();
+	private Set<ItemStackKey> backpackFilterStacks = Collections.emptySet();
+	@Nullable
+	private ISlotIndexedItemHandler indexedBackpackInventory = null;
+	private int backpackFilterStacksVersion = 0;
+	@Nullable
+	private FilterMatcher backpackFilterMatcher = null;
+	@Nullable
+	private Boolean filterByBackpack = null;
 
 	public ContentsFilterLogic(ItemStack upgrade, Consumer<ItemStack> saveHandler, int filterSlotCount) {
 		super(upgrade, saveHandler, filterSlotCount);
@@ -42,7 +51,40 @@ public class ContentsFilterLogic extends FilterLogic {
 	}
 
 	public void refreshBackpackFilterStacks(IItemHandler backpackInventory) {
+		if (backpackInventory instanceof ISlotIndexedItemHandler && ((ISlotIndexedItemHandler) backpackInventory).isSlotIndexAvailable()) {
+			//indexed inventory keeps its stack keys up to date so these only need to be collected again when it's a different inventory
+			ISlotIndexedItemHandler indexedInventory = (ISlotIndexedItemHandler) backpackInventory;
+			if (indexedBackpackInventory != indexedInventory) {
+				indexedBackpackInventory = indexedInventory;
+				backpackFilterStacks = indexedInventory.getSlotStackKeys();
+				backpackFilterMatcher = null;
+			}
+			return;
+		}
+
+		indexedBackpackInventory = null;
 		backpackFilterStacks = InventoryHelper.getUniqueStacks(backpackInventory);
+		backpackFilterMatcher = null;
+	}
+
+	@Override
+	protected void onSettingsChanged() {
+		super.onSettingsChanged();
+		backpackFilterMatcher = null;
+		filterByBackpack = null;
+	}
+
+	private FilterMatcher getBackpackFilterMatcher() {
+		if (indexedBackpackInventory != null && indexedBackpackInventory.getSlotStackKeysVersion() != backpackFilterStacksVersion) {
+			backpackFilterMatcher = null;
+		}
+		if (backpackFilterMatcher == null || !backpackFilterMatcher.isUpToDate()) {
+			if (indexedBackpackInventory != null) {
+				backpackFilterStacksVersion = indexedBackpackInventory.getSlotStackKeysVersion();
+			}
+			backpackFilterMatcher = compileMatcher(() -> backpackFilterStacks.stream().map(ItemStackKey::getStack).iterator());
+		}
+		return backpackFilterMatcher;
 	}
 
 	@Override
@@ -51,12 +93,7 @@ public class ContentsFilterLogic extends FilterLogic {
 			return super.matchesFilter(stack);
 		}
 
-		for (ItemStackKey filterStack : backpackFilterStacks) {
-			if (stackMatchesFilter(stack, filterStack.getStack())) {
-				return true;
-			}
-		}
-		return false;
+		return getBackpackFilterMatcher().matches(stack);
 	}
 
 	private void setFilterByBackpack(boolean filterByBackpack) {
@@ -65,6 +102,9 @@ public class ContentsFilterLogic extends FilterLogic {
 	}
 
 	private boolean shouldFilterByBackpack() {
-		return NBTHelper.getBoolean(upgrade, "filterByBackpack").orElse(false);
+		if (filterByBackpack == null) {
+			filterByBackpack = NBTHelper.getBoolean(upgrade, "filterByBackpack").orElse(false);
+		}
+		return filterByBackpack;
 	}
 }
@@ -9,6 +9,9 @@ import net.p3pp3rf1y.sophisticatedbackpacks.util.FilterItemStackHandler;
 import net.p3pp3rf1y.sophisticatedbackpacks.util.InventoryHelper;
 import net.p3pp3rf1y.sophisticatedbackpacks.util.NBTHelper;
 
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
@@ -17,6 +20,8 @@ public class FilterLogic extends FilterLogicBase {
 	private final Predicate<ItemStack> isItemValid;
 	private FilterItemStackHandler filterHandler = null;
 	private boolean emptyAllowListMatchesEverything = false;
+	@Nullable
+	private FilterMatcher filterMatcher = null;
 
 	public FilterLogic(ItemStack upgrade, Consumer<ItemStack> saveHandler, int filterSlotCount) {
 		this(upgrade, saveHandler, filterSlotCount, s -> true, "");
@@ -77,13 +82,31 @@ public class FilterLogic extends FilterLogicBase {
 		return filterHandler;
 	}
 
+	@Override
+	protected void onSettingsChanged() {
+		super.onSettingsChanged();
+		filterMatcher = null;
+	}
+
+	protected FilterMatcher compileMatcher(Iterable<ItemStack> filters) {
+		return FilterMatcher.compile(filters, getPrimaryMatch(), shouldMatchDurability(), shouldMatchNbt());
+	}
+
+	private FilterMatcher getFilterMatcher() {
+		if (filterMatcher == null || !filterMatcher.isUpToDate()) {
+			List<ItemStack> filters = new ArrayList<>();
+			InventoryHelper.iterate(getFilterHandler(), (slot, filter) -> filters.add(filter));
+			filterMatcher = compileMatcher(filters);
+		}
+		return filterMatcher;
+	}
+
 	public boolean matchesFilter(ItemStack stack) {
+		FilterMatcher matcher = getFilterMatcher();
 		if (isAllowList()) {
-			return (getFilterHandler().hasOnlyEmptyFilters() && emptyAllowListMatchesEverything)
-					|| InventoryHelper.iterate(getFilterHandler(), (slot, filter) -> stackMatchesFilter(stack, filter), () -> false, returnValue -> returnValue);
+			return (matcher.isEmpty() && emptyAllowListMatchesEverything) || matcher.matches(stack);
 		} else {
-			return getFilterHandler().hasOnlyEmptyFilters()
-					|| InventoryHelper.iterate(getFilterHandler(), (slot, filter) -> !stackMatchesFilter(stack, filter), () -> true, returnValue -> !returnValue);
+			return matcher.isEmpty() || !matcher.matches(stack);
 		}
 	}
 
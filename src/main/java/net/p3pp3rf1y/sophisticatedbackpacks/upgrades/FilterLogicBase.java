@@ -1,12 +1,9 @@
 package net.p3pp3rf1y.sophisticatedbackpacks.upgrades;
 
 import net.minecraft.item.ItemStack;
-import net.minecraft.nbt.CompoundNBT;
 import net.p3pp3rf1y.sophisticatedbackpacks.util.InventoryHelper;
 import net.p3pp3rf1y.sophisticatedbackpacks.util.NBTHelper;
 
-import javax.annotation.Nullable;
-import java.util.Objects;
 import java.util.function.Consumer;
 
 public class FilterLogicBase {
@@ -14,6 +11,11 @@ public class FilterLogicBase {
 	protected final Consumer<ItemStack> saveHandler;
 	protected final String parentTagKey;
 	private boolean allowListDefault = false;
+	private boolean settingsLoaded = false;
+	private boolean allowList;
+	private boolean matchDurability;
+	private boolean matchNbt;
+	private PrimaryMatch primaryMatch;
 
 	public FilterLogicBase(ItemStack upgrade, Consumer<ItemStack> saveHandler, String parentTagKey) {
 		this.upgrade = upgrade;
@@ -23,18 +25,35 @@ public class FilterLogicBase {
 
 	public void setAllowByDefault() {
 		allowListDefault = true;
+		onSettingsChanged();
 	}
 
 	protected void save() {
+		onSettingsChanged();
 		saveHandler.accept(upgrade);
 	}
 
+	protected void onSettingsChanged() {
+		settingsLoaded = false;
+	}
+
+	private void loadSettings() {
+		if (settingsLoaded) {
+			return;
+		}
+		settingsLoaded = true;
+		allowList = NBTHelper.getBoolean(upgrade, parentTagKey, "isAllowList").orElse(allowListDefault);
+		matchDurability = NBTHelper.getBoolean(upgrade, parentTagKey, "matchDurability").orElse(false);
+		matchNbt = NBTHelper.getBoolean(upgrade, parentTagKey, "matchNbt").orElse(false);
+		primaryMatch = NBTHelper.getEnumConstant(upgrade, parentTagKey, "primaryMatch", PrimaryMatch::fromName).orElse(PrimaryMatch.ITEM);
+	}
+
 	public boolean stackMatchesFilter(ItemStack stack, ItemStack filter) {
 		if (filter.isEmpty()) {
 			return false;
 		}
 
-		PrimaryMatch primaryMatch = getPrimaryMatch();
+		loadSettings();
 		if (primaryMatch == PrimaryMatch.MOD) {
 			//noinspection ConstantConditions
 			if (!stack.getItem().getRegistryName().getNamespace().equals(filter.getItem().getRegistryName().getNamespace())) {
@@ -48,47 +67,7 @@ public class FilterLogicBase {
 			return false;
 		}
 
-		if (shouldMatchDurability() && stack.getDamage() != filter.getDamage()) {
-			return false;
-		}
-
-		return !shouldMatchNbt() || areItemStackTagsEqualIgnoreDurability(stack, filter);
-	}
-
-	private boolean areItemStackTagsEqualIgnoreDurability(ItemStack stackA, ItemStack stackB) {
-		if (stackA.isEmpty() && stackB.isEmpty()) {
-			return true;
-		} else if (!stackA.isEmpty() && !stackB.isEmpty()) {
-			if (stackA.getTag() == null && stackB.getTag() != null) {
-				return false;
-			} else {
-				return (stackA.getTag() == null || areTagsEqualIgnoreDurability(stackA.getTag(), stackB.getTag())) && stackA.areCapsCompatible(stackB);
-			}
-		} else {
-			return false;
-		}
-	}
-
-	private boolean areTagsEqualIgnoreDurability(CompoundNBT tagA, @Nullable CompoundNBT tagB) {
-		if (tagA == tagB) {
-			return true;
-		}
-		if (tagB == null || tagA.size() != tagB.size()) {
-			return false;
-		}
-
-		for (String key : tagA.keySet()) {
-			if (!tagB.contains(key)) {
-				return false;
-			}
-			if (key.equals("Damage")) {
-				continue;
-			}
-			if (!Objects.equals(tagA.get(key), tagB.get(key))) {
-				return false;
-			}
-		}
-		return true;
+		return FilterMatcher.secondaryMatches(stack, filter, matchDurability, matchNbt);
 	}
 
 	public void setAllowList(boolean isAllowList) {
@@ -97,11 +76,13 @@ public class FilterLogicBase {
 	}
 
 	public boolean isAllowList() {
-		return NBTHelper.getBoolean(upgrade, parentTagKey, "isAllowList").orElse(allowListDefault);
+		loadSettings();
+		return allowList;
 	}
 
 	public boolean shouldMatchDurability() {
-		return NBTHelper.getBoolean(upgrade, parentTagKey, "matchDurability").orElse(false);
+		loadSettings();
+		return matchDurability;
 	}
 
 	public void setMatchDurability(boolean matchDurability) {
@@ -115,7 +96,8 @@ public class FilterLogicBase {
 	}
 
 	public boolean shouldMatchNbt() {
-		return NBTHelper.getBoolean(upgrade, parentTagKey, "matchNbt").orElse(false);
+		loadSettings();
+		return matchNbt;
 	}
 
 	public void setPrimaryMatch(PrimaryMatch primaryMatch) {
@@ -124,6 +106,7 @@ public class FilterLogicBase {
 	}
 
 	public PrimaryMatch getPrimaryMatch() {
-		return NBTHelper.getEnumConstant(upgrade, parentTagKey, "primaryMatch", PrimaryMatch::fromName).orElse(PrimaryMatch.ITEM);
+		loadSettings();
+		return primaryMatch;
 	}
 }
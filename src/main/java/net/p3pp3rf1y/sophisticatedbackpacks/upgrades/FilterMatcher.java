@@ -0,0 +1,142 @@
+package net.p3pp3rf1y.sophisticatedbackpacks.upgrades;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.CompoundNBT;
+import net.minecraftforge.event.TagsUpdatedEvent;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+public class FilterMatcher {
+	public static final FilterMatcher EMPTY = new FilterMatcher(PrimaryMatch.ITEM, false, false, Collections.emptyMap(), false);
+	//tags of items change with data pack reload and matchers compiled from the previous ones need to be compiled again
+	private static volatile int tagsVersion = 0;
+
+	private final PrimaryMatch primaryMatch;
+	private final boolean matchDurability;
+	private final boolean matchNbt;
+	private final Map<Object, List<ItemStack>> primaryKeyFilters;
+	//filters without any tag don't add primary key when matching by tags, but they are still set
+	private final boolean hasFilters;
+	private final int compiledTagsVersion;
+
+	private FilterMatcher(PrimaryMatch primaryMatch, boolean matchDurability, boolean matchNbt, Map<Object, List<ItemStack>> primaryKeyFilters, boolean hasFilters) {
+		this.primaryMatch = primaryMatch;
+		this.matchDurability = matchDurability;
+		this.matchNbt = matchNbt;
+		this.primaryKeyFilters = primaryKeyFilters;
+		this.hasFilters = hasFilters;
+		compiledTagsVersion = tagsVersion;
+	}
+
+	public static FilterMatcher compile(Iterable<ItemStack> filters, PrimaryMatch primaryMatch, boolean matchDurability, boolean matchNbt) {
+		Map<Object, List<ItemStack>> primaryKeyFilters = new HashMap<>();
+		boolean hasFilters = false;
+		for (ItemStack filter : filters) {
+			if (!filter.isEmpty()) {
+				hasFilters = true;
+				for (Object primaryKey : getPrimaryKeys(filter, primaryMatch)) {
+					primaryKeyFilters.computeIfAbsent(primaryKey, k -> new ArrayList<>()).add(filter);
+				}
+			}
+		}
+		return new FilterMatcher(primaryMatch, matchDurability, matchNbt, primaryKeyFilters, hasFilters);
+	}
+
+	@SuppressWarnings("unused") //need the Event parameter for forge reflection to understand what event this listens to
+	public static void onTagsUpdated(TagsUpdatedEvent event) {
+		tagsVersion++;
+	}
+
+	public boolean isUpToDate() {
+		return primaryMatch != PrimaryMatch.TAGS || compiledTagsVersion == tagsVersion;
+	}
+
+	private static Iterable<?> getPrimaryKeys(ItemStack stack, PrimaryMatch primaryMatch) {
+		switch (primaryMatch) {
+			case MOD:
+				//noinspection ConstantConditions - registered items always have registry name
+				return Collections.singleton(stack.getItem().getRegistryName().getNamespace());
+			case TAGS:
+				return stack.getItem().getTags();
+			case ITEM:
+			default:
+				return Collections.singleton(stack.getItem());
+		}
+	}
+
+	public boolean isEmpty() {
+		return !hasFilters;
+	}
+
+	public boolean matches(ItemStack stack) {
+		if (stack.isEmpty() || primaryKeyFilters.isEmpty()) {
+			return false;
+		}
+
+		for (Object primaryKey : getPrimaryKeys(stack, primaryMatch)) {
+			List<ItemStack> filters = primaryKeyFilters.get(primaryKey);
+			if (filters == null) {
+				continue;
+			}
+			if (!matchDurability && !matchNbt) {
+				return true;
+			}
+			for (ItemStack filter : filters) {
+				if (secondaryMatches(stack, filter, matchDurability, matchNbt)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	static boolean secondaryMatches(ItemStack stack, ItemStack filter, boolean matchDurability, boolean matchNbt) {
+		if (matchDurability && stack.getDamage() != filter.getDamage()) {
+			return false;
+		}
+
+		return !matchNbt || areItemStackTagsEqualIgnoreDurability(stack, filter);
+	}
+
+	private static boolean areItemStackTagsEqualIgnoreDurability(ItemStack stackA, ItemStack stackB) {
+		if (stackA.isEmpty() && stackB.isEmpty()) {
+			return true;
+		} else if (!stackA.isEmpty() && !stackB.isEmpty()) {
+			if (stackA.getTag() == null && stackB.getTag() != null) {
+				return false;
+			} else {
+				return (stackA.getTag() == null || areTagsEqualIgnoreDurability(stackA.getTag(), stackB.getTag())) && stackA.areCapsCompatible(stackB);
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean areTagsEqualIgnoreDurability(CompoundNBT tagA, @Nullable CompoundNBT tagB) {
+		if (tagA == tagB) {
+			return true;
+		}
+		if (tagB == null || tagA.size() != tagB.size()) {
+			return false;
+		}
+
+		for (String key : tagA.keySet()) {
+			if (!tagB.contains(key)) {
+				return false;
+			}
+			if (key.equals("Damage")) {
+				continue;
+			}
+			if (!Objects.equals(tagA.get(key), tagB.get(key))) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
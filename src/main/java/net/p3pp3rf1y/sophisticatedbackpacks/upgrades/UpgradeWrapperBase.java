@@ -15,6 +15,7 @@ public abstract class UpgradeWrapperBase<W extends IUpgradeWrapper, T extends Up
 	protected T upgradeItem;
 
 	private long cooldown = 0;
+	private boolean stateDirty = false;
 
 	protected UpgradeWrapperBase(IBackpackWrapper backpackWrapper, ItemStack upgrade, Consumer<ItemStack> upgradeSaveHandler) {
 		this.backpackWrapper = backpackWrapper;
@@ -30,9 +31,36 @@ public abstract class UpgradeWrapperBase<W extends IUpgradeWrapper, T extends Up
 	}
 
 	protected void save() {
+		writeDirtyState();
 		upgradeSaveHandler.accept(upgrade);
 	}
 
+	//state that changes too often to be saved with every change is kept in fields, marked dirty and only written to upgrade stack in writeState when flushed
+	protected void markStateDirty() {
+		if (!stateDirty) {
+			stateDirty = true;
+			backpackWrapper.getUpgradeHandler().onUpgradeStateDirty(this);
+		}
+	}
+
+	protected void writeState() {
+		//noop by default
+	}
+
+	public void flushState() {
+		if (stateDirty) {
+			save();
+		}
+	}
+
+	//writes the state to upgrade stack without saving it, for when the stack is no longer where this wrapper would save it to
+	public void writeDirtyState() {
+		if (stateDirty) {
+			stateDirty = false;
+			writeState();
+		}
+	}
+
 	protected void setCooldown(World world, int time) {
 		cooldown = world.getGameTime() + time;
 	}
@@ -6,6 +6,7 @@ import net.minecraft.item.ItemStack;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 import net.minecraftforge.items.IItemHandler;
+import net.minecraftforge.items.ItemHandlerHelper;
 import net.p3pp3rf1y.sophisticatedbackpacks.api.IBackpackWrapper;
 import net.p3pp3rf1y.sophisticatedbackpacks.api.IInsertResponseUpgrade;
 import net.p3pp3rf1y.sophisticatedbackpacks.api.ISlotChangeResponseUpgrade;
@@ -13,6 +14,7 @@ import net.p3pp3rf1y.sophisticatedbackpacks.api.ITickableUpgrade;
 import net.p3pp3rf1y.sophisticatedbackpacks.upgrades.FilterLogic;
 import net.p3pp3rf1y.sophisticatedbackpacks.upgrades.IFilteredUpgrade;
 import net.p3pp3rf1y.sophisticatedbackpacks.upgrades.UpgradeWrapperBase;
+import net.p3pp3rf1y.sophisticatedbackpacks.util.CompactingRecipeGraph.CompactingResult;
 import net.p3pp3rf1y.sophisticatedbackpacks.util.InventoryHelper;
 import net.p3pp3rf1y.sophisticatedbackpacks.util.NBTHelper;
 import net.p3pp3rf1y.sophisticatedbackpacks.util.RecipeHelper;
@@ -20,6 +22,7 @@ import net.p3pp3rf1y.sophisticatedbackpacks.util.RecipeHelper.CompactingShape;
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -67,26 +70,129 @@ public class CompactingUpgradeWrapper extends UpgradeWrapperBase<CompactingUpgra
 
 	private void tryCompacting(IItemHandler inventoryHandler, Item item, int width, int height) {
 		int totalCount = width * height;
-		List<ItemStack> remainingItems = new ArrayList<>();
-		ItemStack result = RecipeHelper.getCraftingResultAndRemainingItems(item, width, height, remainingItems);
-		if (!result.isEmpty()) {
-			ItemStack extractedStack = InventoryHelper.extractFromInventory(item, totalCount, inventoryHandler, true);
-			while (extractedStack.getCount() == totalCount && fitsResultAndRemainingItems(inventoryHandler, remainingItems, result)) {
-				InventoryHelper.extractFromInventory(item, totalCount, inventoryHandler, false);
-				InventoryHelper.insertIntoInventory(result, inventoryHandler, false);
-				InventoryHelper.insertIntoInventory(remainingItems, inventoryHandler, false);
-				extractedStack = InventoryHelper.extractFromInventory(item, totalCount, inventoryHandler, true);
+		CompactingResult compactingResult = RecipeHelper.getCompactingResult(item, width);
+		ItemStack result = compactingResult.getResult();
+		List<ItemStack> remainingItems = compactingResult.getRemainingItems();
+		if (result.isEmpty()) {
+			return;
+		}
+
+		//every pass can free up space for results of the next one as inputs get extracted
+		int availableCrafts = getAvailableCrafts(inventoryHandler, item, totalCount);
+		while (availableCrafts > 0) {
+			int crafts = getCraftsThatFit(inventoryHandler, result, remainingItems, availableCrafts);
+			if (crafts == 0) {
+				return;
+			}
+			ItemStack extracted = InventoryHelper.extractFromInventory(item, crafts * totalCount, inventoryHandler, false);
+			crafts = extracted.getCount() / totalCount;
+			if (extracted.getCount() % totalCount > 0) {
+				InventoryHelper.insertIntoInventory(ItemHandlerHelper.copyStackWithSize(extracted, extracted.getCount() % totalCount), inventoryHandler, false);
+			}
+			InventoryHelper.insertIntoInventory(multiply(result, crafts), inventoryHandler, false);
+			InventoryHelper.insertIntoInventory(multiply(remainingItems, crafts), inventoryHandler, false);
+			availableCrafts = crafts > 0 ? getAvailableCrafts(inventoryHandler, item, totalCount) : 0;
+		}
+	}
+
+	private int getAvailableCrafts(IItemHandler inventoryHandler, Item item, int totalCount) {
+		return InventoryHelper.extractFromInventory(item, Integer.MAX_VALUE, inventoryHandler, true).getCount() / totalCount;
+	}
+
+	private int getCraftsThatFit(IItemHandler inventoryHandler, ItemStack result, List<ItemStack> remainingItems, int maxCrafts) {
+		List<ItemStack> outputs = new ArrayList<>();
+		addOutput(outputs, result);
+		remainingItems.forEach(remainingItem -> addOutput(outputs, remainingItem));
+
+		//free capacity is collected in one pass so that checking number of crafts is only arithmetic and doesn't need inventory to be simulated again
+		long[] partialStacksCapacities = new long[outputs.size()];
+		long[] emptySlotCapacities = new long[outputs.size()];
+		Arrays.fill(emptySlotCapacities, Long.MAX_VALUE);
+		int emptySlots = 0;
+		for (int slot = 0; slot < inventoryHandler.getSlots(); slot++) {
+			ItemStack slotStack = inventoryHandler.getStackInSlot(slot);
+			if (slotStack.isEmpty()) {
+				if (addEmptySlotCapacities(inventoryHandler, slot, outputs, maxCrafts, emptySlotCapacities)) {
+					emptySlots++;
+				}
+				continue;
+			}
+			for (int i = 0; i < outputs.size(); i++) {
+				if (ItemHandlerHelper.canItemStacksStack(slotStack, outputs.get(i))) {
+					partialStacksCapacities[i] += getFreeCapacity(inventoryHandler, slot, outputs.get(i), maxCrafts);
+					break;
+				}
+			}
+		}
+
+		int minCrafts = 0;
+		int maxCraftsToCheck = maxCrafts;
+		while (minCrafts < maxCraftsToCheck) {
+			int crafts = minCrafts + (maxCraftsToCheck - minCrafts + 1) / 2;
+			if (getEmptySlotsNeeded(outputs, crafts, partialStacksCapacities, emptySlotCapacities) <= emptySlots) {
+				minCrafts = crafts;
+			} else {
+				maxCraftsToCheck = crafts - 1;
+			}
+		}
+		return minCrafts;
+	}
+
+	private static void addOutput(List<ItemStack> outputs, ItemStack output) {
+		if (output.isEmpty()) {
+			return;
+		}
+		for (ItemStack existingOutput : outputs) {
+			if (ItemHandlerHelper.canItemStacksStack(existingOutput, output)) {
+				existingOutput.grow(output.getCount());
+				return;
+			}
+		}
+		outputs.add(output.copy());
+	}
+
+	//only slots that accept every output are counted and with the smallest capacity of these, so that what is calculated to fit always does
+	private static boolean addEmptySlotCapacities(IItemHandler inventoryHandler, int slot, List<ItemStack> outputs, int maxCrafts, long[] emptySlotCapacities) {
+		long[] capacities = new long[outputs.size()];
+		for (int i = 0; i < outputs.size(); i++) {
+			capacities[i] = getFreeCapacity(inventoryHandler, slot, outputs.get(i), maxCrafts);
+			if (capacities[i] == 0) {
+				return false;
 			}
 		}
+		for (int i = 0; i < outputs.size(); i++) {
+			emptySlotCapacities[i] = Math.min(emptySlotCapacities[i], capacities[i]);
+		}
+		return true;
+	}
+
+	private static long getFreeCapacity(IItemHandler inventoryHandler, int slot, ItemStack output, int maxCrafts) {
+		ItemStack outputs = multiply(output, maxCrafts);
+		return (long) outputs.getCount() - inventoryHandler.insertItem(slot, outputs, true).getCount();
 	}
 
-	private boolean fitsResultAndRemainingItems(IItemHandler inventoryHandler, List<ItemStack> remainingItems, ItemStack result) {
-		if (!remainingItems.isEmpty()) {
-			IItemHandler clonedHandler = InventoryHelper.cloneInventory(inventoryHandler);
-			return InventoryHelper.insertIntoInventory(result, clonedHandler, false).isEmpty()
-					&& InventoryHelper.insertIntoInventory(remainingItems, clonedHandler, false).isEmpty();
+	private static long getEmptySlotsNeeded(List<ItemStack> outputs, int crafts, long[] partialStacksCapacities, long[] emptySlotCapacities) {
+		long emptySlotsNeeded = 0;
+		for (int i = 0; i < outputs.size(); i++) {
+			long countNotFittingPartialStacks = (long) outputs.get(i).getCount() * crafts - partialStacksCapacities[i];
+			if (countNotFittingPartialStacks > 0) {
+				if (emptySlotCapacities[i] == Long.MAX_VALUE) {
+					return Long.MAX_VALUE;
+				}
+				emptySlotsNeeded += (countNotFittingPartialStacks + emptySlotCapacities[i] - 1) / emptySlotCapacities[i];
+			}
 		}
-		return InventoryHelper.insertIntoInventory(result, inventoryHandler, true).isEmpty();
+		return emptySlotsNeeded;
+	}
+
+	private static ItemStack multiply(ItemStack stack, int times) {
+		return ItemHandlerHelper.copyStackWithSize(stack, (int) Math.min(Integer.MAX_VALUE, (long) stack.getCount() * times));
+	}
+
+	private static List<ItemStack> multiply(List<ItemStack> stacks, int times) {
+		List<ItemStack> ret = new ArrayList<>();
+		stacks.forEach(stack -> ret.add(multiply(stack, times)));
+		return ret;
 	}
 
 	@Override
@@ -3,16 +3,20 @@ package net.p3pp3rf1y.sophisticatedbackpacks.upgrades.deposit;
 import net.minecraft.item.ItemStack;
 import net.minecraftforge.items.IItemHandler;
 import net.p3pp3rf1y.sophisticatedbackpacks.upgrades.FilterLogic;
+import net.p3pp3rf1y.sophisticatedbackpacks.upgrades.FilterMatcher;
 import net.p3pp3rf1y.sophisticatedbackpacks.util.InventoryHelper;
 import net.p3pp3rf1y.sophisticatedbackpacks.util.ItemStackKey;
 import net.p3pp3rf1y.sophisticatedbackpacks.util.NBTHelper;
 
+import javax.annotation.Nullable;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.function.Consumer;
 
 public class DepositFilterLogic extends FilterLogic {
 	private Set<ItemStackKey> inventoryFilterStacks = new HashSet<>();
+	@Nullable
+	private FilterMatcher inventoryFilterMatcher = null;
 
 	public DepositFilterLogic(ItemStack upgrade, Consumer<ItemStack> saveHandler, int filterSlotCount) {
 		super(upgrade, saveHandler, filterSlotCount);
@@ -44,6 +48,20 @@ public class DepositFilterLogic extends FilterLogic {
 
 	public void setInventory(IItemHandler inventory) {
 		inventoryFilterStacks = InventoryHelper.getUniqueStacks(inventory);
+		inventoryFilterMatcher = null;
+	}
+
+	@Override
+	protected void onSettingsChanged() {
+		super.onSettingsChanged();
+		inventoryFilterMatcher = null;
+	}
+
+	private FilterMatcher getInventoryFilterMatcher() {
+		if (inventoryFilterMatcher == null || !inventoryFilterMatcher.isUpToDate()) {
+			inventoryFilterMatcher = compileMatcher(() -> inventoryFilterStacks.stream().map(ItemStackKey::getStack).iterator());
+		}
+		return inventoryFilterMatcher;
 	}
 
 	@Override
@@ -52,12 +70,7 @@ public class DepositFilterLogic extends FilterLogic {
 			return super.matchesFilter(stack);
 		}
 
-		for (ItemStackKey filterStack : inventoryFilterStacks) {
-			if (stackMatchesFilter(stack, filterStack.getStack())) {
-				return true;
-			}
-		}
-		return false;
+		return getInventoryFilterMatcher().matches(stack);
 	}
 
 	private void setFilterByInventory(boolean filterByInventory) {
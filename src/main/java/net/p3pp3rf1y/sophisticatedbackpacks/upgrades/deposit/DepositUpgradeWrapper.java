@@ -36,9 +36,9 @@ public class DepositUpgradeWrapper extends UpgradeWrapperBase<DepositUpgradeWrap
 		}
 		AtomicInteger stacksAdded = new AtomicInteger(0);
 
-		InventoryHelper.transfer(backpackWrapper.getInventoryForUpgradeProcessing(),
+		backpackWrapper.getInventoryHandler().runInBatch(() -> InventoryHelper.transfer(backpackWrapper.getInventoryForUpgradeProcessing(),
 				new FilteredItemHandler<>(itemHandler, Collections.singletonList(filterLogic), Collections.emptyList()),
-				s -> stacksAdded.incrementAndGet());
+				s -> stacksAdded.incrementAndGet(), player));
 
 		int stacksDeposited = stacksAdded.get();
 		String translKey = stacksDeposited > 0 ? "gui.sophisticatedbackpacks.status.stacks_deposited" : "gui.sophisticatedbackpacks.status.nothing_to_deposit";
@@ -46,7 +46,7 @@ public class InceptionUpgradeWrapper extends UpgradeWrapperBase<InceptionUpgrade
 	}
 
 	private void initSubBackpacksHandler() {
-		subBackpacksHandler = new SubBackpacksHandler(backpackWrapper.getInventoryHandler());
+		subBackpacksHandler = new SubBackpacksHandler(backpackWrapper);
 	}
 
 	@Override
@@ -44,6 +44,11 @@ public class InceptionWrapperAccessor implements IUpgradeWrapperAccessor {
 		return (List<T>) mainBackpackInterfaceWrappers.computeIfAbsent(upgradeClass, backpackWrapper.getUpgradeHandler()::getListOfWrappersThatImplement);
 	}
 
+	@Override
+	public void flushUpgradeStates() {
+		subBackpacksHandler.getSubBackpacks().forEach(sb -> sb.getUpgradeHandler().flushUpgradeStates());
+	}
+
 	@Override
 	public void onBeforeDeconstruct() {
 		removeCallBacks(subBackpacksHandler.getSubBackpacks());
@@ -5,6 +5,7 @@ import net.p3pp3rf1y.sophisticatedbackpacks.api.CapabilityBackpackWrapper;
 import net.p3pp3rf1y.sophisticatedbackpacks.api.IBackpackWrapper;
 import net.p3pp3rf1y.sophisticatedbackpacks.backpack.wrapper.BackpackInventoryHandler;
 
+import java.lang.ref.WeakReference;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -19,9 +20,16 @@ public class SubBackpacksHandler {
 	private final Set<Consumer<Collection<IBackpackWrapper>>> refreshListeners = new HashSet<>();
 	private final Set<Consumer<Collection<IBackpackWrapper>>> beforeRefreshListeners = new HashSet<>();
 
-	public SubBackpacksHandler(BackpackInventoryHandler inventoryHandler) {
-		this.inventoryHandler = inventoryHandler;
-		this.inventoryHandler.addListener(this::onContentsChanged);
+	public SubBackpacksHandler(IBackpackWrapper backpackWrapper) {
+		inventoryHandler = backpackWrapper.getInventoryHandler();
+		//inventory handler may outlive the backpack wrapper so it only gets weak reference to this handler which is owned by the wrapper's upgrade
+		WeakReference<SubBackpacksHandler> handlerReference = new WeakReference<>(this);
+		inventoryHandler.addListener(backpackWrapper, slot -> {
+			SubBackpacksHandler subBackpacksHandler = handlerReference.get();
+			if (subBackpacksHandler != null) {
+				subBackpacksHandler.onContentsChanged(slot);
+			}
+		});
 
 		refreshSubBackpacks();
 	}
@@ -0,0 +1,102 @@
+package net.p3pp3rf1y.sophisticatedbackpacks.upgrades.magnet;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.EntityType;
+import net.minecraft.entity.item.ItemEntity;
+import net.minecraft.util.ClassInheritanceMultiMap;
+import net.minecraft.util.RegistryKey;
+import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.math.SectionPos;
+import net.minecraft.world.IWorld;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraftforge.event.world.WorldEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class MagnetItemEntityIndex {
+	//entities are bucketed by position, but their bounding box can reach into neighboring sections
+	private static final double SECTION_MARGIN = 2.0D;
+
+	private static final Map<RegistryKey<World>, MagnetItemEntityIndex> worldIndexes = new HashMap<>();
+
+	private final Map<Long, List<ItemEntity>> sectionItemEntities = new HashMap<>();
+	private final Set<ItemEntity> claimedItemEntities = Collections.newSetFromMap(new IdentityHashMap<>());
+	private long indexedGameTime = -1;
+
+	private MagnetItemEntityIndex() {}
+
+	public static MagnetItemEntityIndex get(World world) {
+		MagnetItemEntityIndex index = worldIndexes.computeIfAbsent(world.getDimensionKey(), dim -> new MagnetItemEntityIndex());
+		index.clearIfOutdated(world.getGameTime());
+		return index;
+	}
+
+	public static void onWorldUnload(WorldEvent.Unload event) {
+		IWorld world = event.getWorld();
+		if (!world.isRemote() && world instanceof World) {
+			worldIndexes.remove(((World) world).getDimensionKey());
+		}
+	}
+
+	private void clearIfOutdated(long gameTime) {
+		if (indexedGameTime != gameTime) {
+			indexedGameTime = gameTime;
+			sectionItemEntities.clear();
+			claimedItemEntities.clear();
+		}
+	}
+
+	public List<ItemEntity> getUnclaimedItemEntities(World world, AxisAlignedBB area) {
+		List<ItemEntity> ret = new ArrayList<>();
+		int minX = SectionPos.toChunk(MathHelper.floor(area.minX - SECTION_MARGIN));
+		int maxX = SectionPos.toChunk(MathHelper.floor(area.maxX + SECTION_MARGIN));
+		int minY = SectionPos.toChunk(MathHelper.floor(area.minY - SECTION_MARGIN));
+		int maxY = SectionPos.toChunk(MathHelper.floor(area.maxY + SECTION_MARGIN));
+		int minZ = SectionPos.toChunk(MathHelper.floor(area.minZ - SECTION_MARGIN));
+		int maxZ = SectionPos.toChunk(MathHelper.floor(area.maxZ + SECTION_MARGIN));
+		for (int x = minX; x <= maxX; x++) {
+			for (int z = minZ; z <= maxZ; z++) {
+				for (int y = minY; y <= maxY; y++) {
+					for (ItemEntity itemEntity : getSectionItemEntities(world, x, y, z)) {
+						if (!claimedItemEntities.contains(itemEntity) && itemEntity.getBoundingBox().intersects(area)) {
+							ret.add(itemEntity);
+						}
+					}
+				}
+			}
+		}
+		return ret;
+	}
+
+	private List<ItemEntity> getSectionItemEntities(World world, int x, int y, int z) {
+		return sectionItemEntities.computeIfAbsent(SectionPos.asLong(x, y, z), sectionKey -> {
+			Chunk chunk = world.getChunkProvider().getChunkNow(x, z);
+			if (chunk == null) {
+				return Collections.emptyList();
+			}
+			ClassInheritanceMultiMap<Entity>[] entityLists = chunk.getEntityLists();
+			if (y < 0 || y >= entityLists.length) {
+				return Collections.emptyList();
+			}
+			List<ItemEntity> itemEntities = new ArrayList<>();
+			for (Entity entity : entityLists[y]) {
+				if (entity.getType() == EntityType.ITEM) {
+					itemEntities.add((ItemEntity) entity);
+				}
+			}
+			return itemEntities;
+		});
+	}
+
+	public void claim(ItemEntity itemEntity) {
+		claimedItemEntities.add(itemEntity);
+	}
+}
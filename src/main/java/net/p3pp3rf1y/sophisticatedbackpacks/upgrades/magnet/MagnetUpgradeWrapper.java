@@ -1,6 +1,5 @@
 package net.p3pp3rf1y.sophisticatedbackpacks.upgrades.magnet;
 
-import net.minecraft.entity.EntityType;
 import net.minecraft.entity.LivingEntity;
 import net.minecraft.entity.item.ItemEntity;
 import net.minecraft.item.ItemStack;
@@ -56,7 +55,8 @@ public class MagnetUpgradeWrapper extends UpgradeWrapperBase<MagnetUpgradeWrappe
 			return;
 		}
 
-		List<ItemEntity> itemEntities = world.getEntitiesWithinAABB(EntityType.ITEM, new AxisAlignedBB(pos).grow(upgradeItem.getRadius()), e -> true);
+		MagnetItemEntityIndex itemEntityIndex = MagnetItemEntityIndex.get(world);
+		List<ItemEntity> itemEntities = itemEntityIndex.getUnclaimedItemEntities(world, new AxisAlignedBB(pos).grow(upgradeItem.getRadius()));
 		if (itemEntities.isEmpty()) {
 			setCooldown(world, COOLDOWN_TICKS);
 			return;
@@ -74,6 +74,9 @@ public class MagnetUpgradeWrapper extends UpgradeWrapperBase<MagnetUpgradeWrappe
 				continue;
 			}
 			if (tryToInsertItem(itemEntity)) {
+				if (itemEntity.getItem().isEmpty()) {
+					itemEntityIndex.claim(itemEntity);
+				}
 				cooldown = COOLDOWN_TICKS;
 			}
 		}
@@ -38,9 +38,9 @@ public class RestockUpgradeWrapper extends UpgradeWrapperBase<RestockUpgradeWrap
 		}
 		AtomicInteger stacksAdded = new AtomicInteger(0);
 
-		InventoryHelper.transfer(itemHandler,
+		backpackWrapper.getInventoryHandler().runInBatch(() -> InventoryHelper.transfer(itemHandler,
 				new FilteredItemHandler<>(backpackWrapper.getInventoryForUpgradeProcessing(), Collections.singletonList(filterLogic), Collections.emptyList()),
-				s -> stacksAdded.incrementAndGet());
+				s -> stacksAdded.incrementAndGet(), player));
 
 		int stacksRestocked = stacksAdded.get();
 		String translKey = stacksRestocked > 0 ? "gui.sophisticatedbackpacks.status.stacks_restocked" : "gui.sophisticatedbackpacks.status.nothing_to_restock";
@@ -6,7 +6,6 @@ import net.minecraft.item.Items;
 import net.minecraft.item.crafting.FurnaceRecipe;
 import net.minecraft.item.crafting.IRecipe;
 import net.minecraft.world.World;
-import net.minecraftforge.common.ForgeHooks;
 import net.minecraftforge.items.ItemStackHandler;
 import net.p3pp3rf1y.sophisticatedbackpacks.util.NBTHelper;
 import net.p3pp3rf1y.sophisticatedbackpacks.util.RecipeHelper;
@@ -20,6 +19,7 @@ import java.util.function.Predicate;
 public class SmeltingLogic {
 	private final ItemStack upgrade;
 	private final Consumer<ItemStack> saveHandler;
+	private final Runnable onStateChanged;
 
 	private ItemStackHandler smeltingInventory = null;
 	public static final int COOK_INPUT_SLOT = 0;
@@ -34,23 +34,44 @@ public class SmeltingLogic {
 	private final double smeltingSpeedMultiplier;
 	private final double fuelEfficiencyMultiplier;
 
-	public SmeltingLogic(ItemStack upgrade, Consumer<ItemStack> saveHandler, double smeltingSpeedMultiplier, double fuelEfficiencyMultiplier) {
-		this(upgrade, saveHandler, s -> getBurnTime(s) > 0, s -> RecipeHelper.getSmeltingRecipe(s).isPresent(), smeltingSpeedMultiplier, fuelEfficiencyMultiplier);
+	private long burnTimeFinish;
+	private int burnTimeTotal;
+	private long cookTimeFinish;
+	private int cookTimeTotal;
+	private boolean isCooking;
+
+	public SmeltingLogic(ItemStack upgrade, Consumer<ItemStack> saveHandler, Runnable onStateChanged, double smeltingSpeedMultiplier, double fuelEfficiencyMultiplier) {
+		this(upgrade, saveHandler, onStateChanged, s -> getBurnTime(s) > 0, s -> RecipeHelper.getSmeltingRecipe(s).isPresent(), smeltingSpeedMultiplier, fuelEfficiencyMultiplier);
 	}
 
-	public SmeltingLogic(ItemStack upgrade, Consumer<ItemStack> saveHandler, Predicate<ItemStack> isFuel, Predicate<ItemStack> isInput, double smeltingSpeedMultiplier, double fuelEfficiencyMultiplier) {
+	public SmeltingLogic(ItemStack upgrade, Consumer<ItemStack> saveHandler, Runnable onStateChanged, Predicate<ItemStack> isFuel, Predicate<ItemStack> isInput, double smeltingSpeedMultiplier, double fuelEfficiencyMultiplier) {
 		this.upgrade = upgrade;
 		this.saveHandler = saveHandler;
+		this.onStateChanged = onStateChanged;
 		this.isFuel = isFuel;
 		this.isInput = isInput;
 		this.smeltingSpeedMultiplier = smeltingSpeedMultiplier;
 		this.fuelEfficiencyMultiplier = fuelEfficiencyMultiplier;
+		burnTimeFinish = NBTHelper.getLong(upgrade, "burnTimeFinish").orElse(0L);
+		burnTimeTotal = NBTHelper.getInt(upgrade, "burnTimeTotal").orElse(0);
+		cookTimeFinish = NBTHelper.getLong(upgrade, "cookTimeFinish").orElse(-1L);
+		cookTimeTotal = NBTHelper.getInt(upgrade, "cookTimeTotal").orElse(0);
+		isCooking = NBTHelper.getBoolean(upgrade, "isCooking").orElse(false);
 	}
 
 	private void save() {
+		writeState();
 		saveHandler.accept(upgrade);
 	}
 
+	public void writeState() {
+		NBTHelper.setLong(upgrade, "burnTimeFinish", burnTimeFinish);
+		NBTHelper.setInteger(upgrade, "burnTimeTotal", burnTimeTotal);
+		NBTHelper.setLong(upgrade, "cookTimeFinish", cookTimeFinish);
+		NBTHelper.setInteger(upgrade, "cookTimeTotal", cookTimeTotal);
+		NBTHelper.setBoolean(upgrade, "isCooking", isCooking);
+	}
+
 	public boolean tick(World world) {
 		AtomicBoolean didSomething = new AtomicBoolean(true);
 		if (isBurning(world) || readyToStartCooking()) {
@@ -207,7 +228,7 @@ public class SmeltingLogic {
 	}
 
 	private static int getBurnTime(ItemStack fuel) {
-		return ForgeHooks.getBurnTime(fuel);
+		return RecipeHelper.getBurnTime(fuel);
 	}
 
 	public ItemStack getCookOutput() {
@@ -257,47 +278,47 @@ public class SmeltingLogic {
 	}
 
 	public long getBurnTimeFinish() {
-		return NBTHelper.getLong(upgrade, "burnTimeFinish").orElse(0L);
+		return burnTimeFinish;
 	}
 
 	private void setBurnTimeFinish(long burnTimeFinish) {
-		NBTHelper.setLong(upgrade, "burnTimeFinish", burnTimeFinish);
-		save();
+		this.burnTimeFinish = burnTimeFinish;
+		onStateChanged.run();
 	}
 
 	public int getBurnTimeTotal() {
-		return NBTHelper.getInt(upgrade, "burnTimeTotal").orElse(0);
+		return burnTimeTotal;
 	}
 
 	private void setBurnTimeTotal(int burnTimeTotal) {
-		NBTHelper.setInteger(upgrade, "burnTimeTotal", burnTimeTotal);
-		save();
+		this.burnTimeTotal = burnTimeTotal;
+		onStateChanged.run();
 	}
 
 	public long getCookTimeFinish() {
-		return NBTHelper.getLong(upgrade, "cookTimeFinish").orElse(-1L);
+		return cookTimeFinish;
 	}
 
 	private void setCookTimeFinish(long cookTimeFinish) {
-		NBTHelper.setLong(upgrade, "cookTimeFinish", cookTimeFinish);
-		save();
+		this.cookTimeFinish = cookTimeFinish;
+		onStateChanged.run();
 	}
 
 	public int getCookTimeTotal() {
-		return NBTHelper.getInt(upgrade, "cookTimeTotal").orElse(0);
+		return cookTimeTotal;
 	}
 
 	private void setCookTimeTotal(int cookTimeTotal) {
-		NBTHelper.setInteger(upgrade, "cookTimeTotal", cookTimeTotal);
-		save();
+		this.cookTimeTotal = cookTimeTotal;
+		onStateChanged.run();
 	}
 
 	public boolean isCooking() {
-		return NBTHelper.getBoolean(upgrade, "isCooking").orElse(false);
+		return isCooking;
 	}
 
 	private void setIsCooking(boolean isCooking) {
-		NBTHelper.setBoolean(upgrade, "isCooking", isCooking);
-		save();
+		this.isCooking = isCooking;
+		onStateChanged.run();
 	}
 }
@@ -19,7 +19,7 @@ public class SmeltingUpgradeWrapper extends UpgradeWrapperBase<SmeltingUpgradeWr
 
 	public SmeltingUpgradeWrapper(IBackpackWrapper backpackWrapper, ItemStack upgrade, Consumer<ItemStack> upgradeSaveHandler) {
 		super(backpackWrapper, upgrade, upgradeSaveHandler);
-		smeltingLogic = new SmeltingLogic(upgrade, upgradeSaveHandler, Config.COMMON.smeltingUpgrade.smeltingSpeedMultiplier.get(),
+		smeltingLogic = new SmeltingLogic(upgrade, upgradeSaveHandler, this::markStateDirty, Config.COMMON.smeltingUpgrade.smeltingSpeedMultiplier.get(),
 				Config.COMMON.smeltingUpgrade.fuelEfficiencyMultiplier.get());
 	}
 
@@ -34,6 +34,11 @@ public class SmeltingUpgradeWrapper extends UpgradeWrapperBase<SmeltingUpgradeWr
 		}
 	}
 
+	@Override
+	protected void writeState() {
+		smeltingLogic.writeState();
+	}
+
 	@Override
 	public SmeltingLogic getSmeltingLogic() {
 		return smeltingLogic;
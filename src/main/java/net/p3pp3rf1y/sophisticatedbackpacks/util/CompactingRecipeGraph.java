@@ -0,0 +1,206 @@
+package net.p3pp3rf1y.sophisticatedbackpacks.util;
+
+import com.google.common.collect.ImmutableList;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.inventory.CraftingInventory;
+import net.minecraft.inventory.container.Container;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.crafting.ICraftingRecipe;
+import net.minecraft.item.crafting.IRecipeType;
+import net.minecraft.item.crafting.Ingredient;
+import net.minecraft.item.crafting.RecipeManager;
+import net.minecraft.world.World;
+import net.p3pp3rf1y.sophisticatedbackpacks.util.RecipeHelper.CompactingShape;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static net.p3pp3rf1y.sophisticatedbackpacks.util.RecipeHelper.CompactingShape.*;
+
+public class CompactingRecipeGraph {
+	private static final int MAX_FOLLOW_UP_COMPACTING_RECIPES = 10;
+
+	private final WeakReference<RecipeManager> recipeManager;
+	private final Map<Item, CompactingResult> uncompactingResults = new ConcurrentHashMap<>();
+	private final Map<Item, CompactingResult> twoByTwoResults = new ConcurrentHashMap<>();
+	private final Map<Item, CompactingResult> threeByThreeResults = new ConcurrentHashMap<>();
+	private final Map<Item, Set<CompactingShape>> itemShapes = new ConcurrentHashMap<>();
+	private final Queue<Item> itemsToPrecompute = new ConcurrentLinkedQueue<>();
+	private volatile boolean invalidated = false;
+
+	CompactingRecipeGraph(RecipeManager recipeManager) {
+		this.recipeManager = new WeakReference<>(recipeManager);
+	}
+
+	boolean isUpToDate(World world) {
+		return !invalidated && recipeManager.get() == world.getRecipeManager();
+	}
+
+	void invalidate() {
+		invalidated = true;
+	}
+
+	//runs off the server thread so it only reads ingredients (and tags they resolve) of recipes that were collected on the server thread, recipes are matched in precomputeNext
+	void collectItemsToPrecompute(Collection<ICraftingRecipe> craftingRecipes) {
+		Set<Item> items = new LinkedHashSet<>();
+		for (ICraftingRecipe recipe : craftingRecipes) {
+			if (invalidated) {
+				return;
+			}
+			List<Ingredient> ingredients = new ArrayList<>();
+			for (Ingredient ingredient : recipe.getIngredients()) {
+				if (!ingredient.hasNoMatchingItems()) {
+					ingredients.add(ingredient);
+				}
+			}
+			if (ingredients.size() == 1 || ingredients.size() == 4 || ingredients.size() == 9) {
+				for (Ingredient ingredient : ingredients) {
+					for (ItemStack stack : ingredient.getMatchingStacks()) {
+						items.add(stack.getItem());
+					}
+				}
+			}
+		}
+		itemsToPrecompute.addAll(items);
+	}
+
+	void precomputeNext(World world, int maxItems) {
+		for (int i = 0; i < maxItems && !invalidated; i++) {
+			Item item = itemsToPrecompute.poll();
+			if (item == null) {
+				return;
+			}
+			getCompactingShapes(item, world);
+		}
+	}
+
+	Set<CompactingShape> getCompactingShapes(Item item, World world) {
+		return itemShapes.computeIfAbsent(item, i -> {
+			Set<CompactingShape> compactingShapes = EnumSet.noneOf(CompactingShape.class);
+			getCompactingShape(i, world, 2, TWO_BY_TWO_UNCRAFTABLE, TWO_BY_TWO, compactingShapes);
+			getCompactingShape(i, world, 3, THREE_BY_THREE_UNCRAFTABLE, THREE_BY_THREE, compactingShapes);
+			return Collections.unmodifiableSet(compactingShapes);
+		});
+	}
+
+	CompactingResult getCompactingResult(Item item, World world, int size) {
+		Map<Item, CompactingResult> results;
+		if (size == 1) {
+			results = uncompactingResults;
+		} else if (size == 2) {
+			results = twoByTwoResults;
+		} else {
+			results = threeByThreeResults;
+		}
+		return results.computeIfAbsent(item, i -> calculateCompactingResult(i, world, size));
+	}
+
+	private void getCompactingShape(Item item, World world, int size, CompactingShape uncraftableShape, CompactingShape shape, Set<CompactingShape> compactingShapes) {
+		ItemStack compactingResult = getCompactingResult(item, world, size).getResult();
+		if (compactingResult.isEmpty() || item == compactingResult.getItem() || isPartOfCompactingLoop(item, compactingResult.getItem(), world)) {
+			return;
+		}
+
+		if (uncompactMatchesItem(compactingResult, world, item, size * size)) {
+			compactingShapes.add(uncraftableShape);
+		} else {
+			compactingShapes.add(shape);
+		}
+	}
+
+	private boolean isPartOfCompactingLoop(Item firstCompacted, Item firstCompactResult, World world) {
+		int iterations = 0;
+		Set<Item> compactedItems = new HashSet<>();
+		Queue<Item> itemsToCompact = new LinkedList<>();
+		itemsToCompact.add(firstCompactResult);
+		while (!itemsToCompact.isEmpty()) {
+			Item itemToCompact = itemsToCompact.poll();
+			for (int size = 2; size <= 3; size++) {
+				ItemStack compactingResult = getCompactingResult(itemToCompact, world, size).getResult();
+				if (!compactingResult.isEmpty()) {
+					if (compactingResult.getItem() == firstCompacted) {
+						return true;
+					} else if (compactedItems.contains(compactingResult.getItem())) {
+						return false; //loop exists but the first compacted item isn't part of it so we will let it be compacted, but no follow up compacting will happen
+					}
+					itemsToCompact.add(compactingResult.getItem());
+				}
+			}
+			compactedItems.add(itemToCompact);
+			iterations++;
+			if (iterations > MAX_FOLLOW_UP_COMPACTING_RECIPES) {
+				return true; //we were unable to figure out if the loop exists because of way too many follow up compacting recipe thus not allowing to compact anyway
+			}
+		}
+		return false;
+	}
+
+	private boolean uncompactMatchesItem(ItemStack result, World world, Item item, int count) {
+		ItemStack uncompactResult = getCompactingResult(result.getItem(), world, 1).getResult();
+		return (uncompactResult.getItem() == item || InventoryHelper.anyItemTagMatches(uncompactResult.getItem(), item)) && uncompactResult.getCount() == count;
+	}
+
+	private static CompactingResult calculateCompactingResult(Item item, World world, int size) {
+		List<ItemStack> remainingItems = new ArrayList<>();
+		ItemStack result = getCraftingResultAndRemainingItems(item, world, size, size, remainingItems);
+		return result.isEmpty() ? CompactingResult.EMPTY : new CompactingResult(result, remainingItems);
+	}
+
+	static ItemStack getCraftingResultAndRemainingItems(Item item, World world, int width, int height, List<ItemStack> remainingItems) {
+		CraftingInventory craftingInventory = getFilledCraftingInventory(item, width, height);
+		return world.getRecipeManager().getRecipe(IRecipeType.CRAFTING, craftingInventory, world).map(r -> {
+			r.getRemainingItems(craftingInventory).forEach(stack -> {
+				if (!stack.isEmpty()) {
+					remainingItems.add(stack);
+				}
+			});
+			return r.getCraftingResult(craftingInventory);
+		}).orElse(ItemStack.EMPTY);
+	}
+
+	private static CraftingInventory getFilledCraftingInventory(Item item, int width, int height) {
+		CraftingInventory craftinginventory = new CraftingInventory(new Container(null, -1) {
+			public boolean canInteractWith(PlayerEntity playerIn) {
+				return false;
+			}
+		}, width, height);
+
+		for (int i = 0; i < craftinginventory.getSizeInventory(); i++) {
+			craftinginventory.setInventorySlotContents(i, new ItemStack(item));
+		}
+		return craftinginventory;
+	}
+
+	public static class CompactingResult {
+		public static final CompactingResult EMPTY = new CompactingResult(ItemStack.EMPTY, Collections.emptyList());
+
+		private final ItemStack result;
+		private final List<ItemStack> remainingItems;
+
+		private CompactingResult(ItemStack result, List<ItemStack> remainingItems) {
+			this.result = result;
+			this.remainingItems = ImmutableList.copyOf(remainingItems);
+		}
+
+		public ItemStack getResult() {
+			return result;
+		}
+
+		public List<ItemStack> getRemainingItems() {
+			return remainingItems;
+		}
+	}
+}
@@ -14,13 +14,17 @@ import net.minecraftforge.items.ItemHandlerHelper;
 import net.minecraftforge.items.ItemStackHandler;
 import net.p3pp3rf1y.sophisticatedbackpacks.api.IBackpackWrapper;
 import net.p3pp3rf1y.sophisticatedbackpacks.api.IPickupResponseUpgrade;
+import net.p3pp3rf1y.sophisticatedbackpacks.backpack.wrapper.BackpackInventoryHandler;
+import net.p3pp3rf1y.sophisticatedbackpacks.backpack.wrapper.ISlotIndexedItemHandler;
 import org.apache.commons.lang3.mutable.MutableInt;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -36,6 +40,16 @@ public class InventoryHelper {
 	private InventoryHelper() {}
 
 	public static boolean hasItem(IItemHandler inventory, Predicate<ItemStack> matches) {
+		if (inventory instanceof BackpackInventoryHandler) {
+			BackpackInventoryHandler backpackInventory = (BackpackInventoryHandler) inventory;
+			for (int slot = backpackInventory.nextOccupiedSlot(0); slot >= 0; slot = backpackInventory.nextOccupiedSlot(slot + 1)) {
+				if (matches.test(backpackInventory.getStackInSlot(slot))) {
+					return true;
+				}
+			}
+			return false;
+		}
+
 		int slots = inventory.getSlots();
 		for (int slot = 0; slot < slots; slot++) {
 			ItemStack slotStack = inventory.getStackInSlot(slot);
@@ -85,6 +99,10 @@ public class InventoryHelper {
 	}
 
 	public static ItemStack insertIntoInventory(ItemStack stack, IItemHandler inventory, boolean simulate) {
+		if (isSlotIndexed(inventory)) {
+			return insertIntoIndexedInventory(stack, (ISlotIndexedItemHandler) inventory, simulate);
+		}
+
 		ItemStack remainingStack = stack.copy();
 		int slots = inventory.getSlots();
 		for (int slot = 0; slot < slots && !remainingStack.isEmpty(); slot++) {
@@ -93,6 +111,22 @@ public class InventoryHelper {
 		return remainingStack;
 	}
 
+	private static boolean isSlotIndexed(IItemHandler inventory) {
+		return inventory instanceof ISlotIndexedItemHandler && ((ISlotIndexedItemHandler) inventory).isSlotIndexAvailable();
+	}
+
+	private static ItemStack insertIntoIndexedInventory(ItemStack stack, ISlotIndexedItemHandler inventory, boolean simulate) {
+		ItemStack remainingStack = stack.copy();
+		ItemStackKey stackKey = new ItemStackKey(stack);
+		for (int slot = inventory.nextSlotWithMatchingStack(stackKey, 0); slot >= 0 && !remainingStack.isEmpty(); slot = inventory.nextSlotWithMatchingStack(stackKey, slot + 1)) {
+			remainingStack = inventory.insertItem(slot, remainingStack, simulate);
+		}
+		for (int slot = inventory.nextEmptySlot(0); slot >= 0 && !remainingStack.isEmpty(); slot = inventory.nextEmptySlot(slot + 1)) {
+			remainingStack = inventory.insertItem(slot, remainingStack, simulate);
+		}
+		return remainingStack;
+	}
+
 	public static ItemStack extractFromInventory(Item item, int count, IItemHandler inventory, boolean simulate) {
 		ItemStack ret = ItemStack.EMPTY;
 		int slots = inventory.getSlots();
@@ -113,12 +147,16 @@ public class InventoryHelper {
 
 	public static ItemStack extractFromInventory(ItemStack stack, IItemHandler inventory, boolean simulate) {
 		int extractedCount = 0;
-		int slots = inventory.getSlots();
-		for (int slot = 0; slot < slots && extractedCount < stack.getCount(); slot++) {
-			ItemStack slotStack = inventory.getStackInSlot(slot);
-			if (ItemHandlerHelper.canItemStacksStack(stack, slotStack)) {
-				int toExtract = Math.min(slotStack.getCount(), stack.getCount() - extractedCount);
-				extractedCount += inventory.extractItem(slot, toExtract, simulate).getCount();
+		if (isSlotIndexed(inventory)) {
+			ISlotIndexedItemHandler indexedInventory = (ISlotIndexedItemHandler) inventory;
+			ItemStackKey stackKey = new ItemStackKey(stack);
+			for (int slot = indexedInventory.nextSlotWithMatchingStack(stackKey, 0); slot >= 0 && extractedCount < stack.getCount(); slot = indexedInventory.nextSlotWithMatchingStack(stackKey, slot + 1)) {
+				extractedCount += extractFromSlot(stack, inventory, slot, extractedCount, simulate);
+			}
+		} else {
+			int slots = inventory.getSlots();
+			for (int slot = 0; slot < slots && extractedCount < stack.getCount(); slot++) {
+				extractedCount += extractFromSlot(stack, inventory, slot, extractedCount, simulate);
 			}
 		}
 
@@ -132,6 +170,15 @@ public class InventoryHelper {
 		return result;
 	}
 
+	private static int extractFromSlot(ItemStack stack, IItemHandler inventory, int slot, int extractedCount, boolean simulate) {
+		ItemStack slotStack = inventory.getStackInSlot(slot);
+		if (!ItemHandlerHelper.canItemStacksStack(stack, slotStack)) {
+			return 0;
+		}
+		int toExtract = Math.min(slotStack.getCount(), stack.getCount() - extractedCount);
+		return inventory.extractItem(slot, toExtract, simulate).getCount();
+	}
+
 	public static boolean runPickupOnBackpack(World world, ItemStack remainingStack, IBackpackWrapper backpackWrapper, boolean simulate) {
 		List<IPickupResponseUpgrade> pickupUpgrades = backpackWrapper.getUpgradeHandler().getWrappersThatImplement(IPickupResponseUpgrade.class);
 
@@ -161,6 +208,22 @@ public class InventoryHelper {
 		}
 	}
 
+	public static void iterateNonEmpty(IItemHandler handler, BiConsumer<Integer, ItemStack> actOn) {
+		if (handler instanceof BackpackInventoryHandler) {
+			BackpackInventoryHandler backpackInventory = (BackpackInventoryHandler) handler;
+			for (int slot = backpackInventory.nextOccupiedSlot(0); slot >= 0; slot = backpackInventory.nextOccupiedSlot(slot + 1)) {
+				actOn.accept(slot, backpackInventory.getStackInSlot(slot));
+			}
+			return;
+		}
+
+		iterate(handler, (slot, stack) -> {
+			if (!stack.isEmpty()) {
+				actOn.accept(slot, stack);
+			}
+		});
+	}
+
 	public static int getCountMissingInHandler(IItemHandler itemHandler, ItemStack filter, int expectedCount) {
 		MutableInt missingCount = new MutableInt(expectedCount);
 		iterate(itemHandler, (slot, stack) -> {
@@ -197,28 +260,81 @@ public class InventoryHelper {
 		return false;
 	}
 
-	public static void transfer(IItemHandler handlerA, IItemHandler handlerB, Consumer<Supplier<ItemStack>> onInserted) {
-		int slotsA = handlerA.getSlots();
-		for (int slot = 0; slot < slotsA; slot++) {
-			ItemStack slotStack = handlerA.getStackInSlot(slot);
-			if (slotStack.isEmpty()) {
-				continue;
+	public static void transfer(IItemHandler handlerA, IItemHandler handlerB, Consumer<Supplier<ItemStack>> onInserted, PlayerEntity player) {
+		Map<ItemStackKey, List<Integer>> stackKeySlots = new LinkedHashMap<>();
+		iterateNonEmpty(handlerA, (slot, stack) -> stackKeySlots.computeIfAbsent(new ItemStackKey(stack), k -> new ArrayList<>()).add(slot));
+		stackKeySlots.forEach((stackKey, slots) -> transferStacks(handlerA, handlerB, stackKey.getStack(), slots, onInserted, player));
+	}
+
+	//moves all stacks of the same kind at once so that target inventory is only gone through twice for every kind of stack instead of for every slot
+	private static void transferStacks(IItemHandler handlerA, IItemHandler handlerB, ItemStack stack, List<Integer> slots, Consumer<Supplier<ItemStack>> onInserted, PlayerEntity player) {
+		int totalCount = 0;
+		for (int slot : slots) {
+			totalCount += handlerA.getStackInSlot(slot).getCount();
+		}
+		int countToTransfer = totalCount - insertIntoInventory(ItemHandlerHelper.copyStackWithSize(stack, totalCount), handlerB, true).getCount();
+		if (countToTransfer <= 0) {
+			return;
+		}
+
+		int[] extractedCounts = new int[slots.size()];
+		int extractedCount = 0;
+		for (int i = 0; i < slots.size() && extractedCount < countToTransfer; i++) {
+			int slot = slots.get(i);
+			int countToExtract = handlerA.extractItem(slot, Math.min(countToTransfer - extractedCount, handlerA.getStackInSlot(slot).getCount()), true).getCount();
+			if (countToExtract > 0) {
+				extractedCounts[i] = handlerA.extractItem(slot, countToExtract, false).getCount();
+				extractedCount += extractedCounts[i];
 			}
+		}
+		if (extractedCount == 0) {
+			return;
+		}
+
+		ItemStack remainingStack = insertIntoInventory(ItemHandlerHelper.copyStackWithSize(stack, extractedCount), handlerB, false);
+		if (!remainingStack.isEmpty()) {
+			//target accepted less than simulation promised so the rest goes back to the slots it was taken from
+			remainingStack = returnToSourceSlots(handlerA, slots, extractedCounts, remainingStack);
+			if (!remainingStack.isEmpty()) {
+				removeFromCounts(extractedCounts, remainingStack.getCount());
+				insertOrDropItem(player, remainingStack, handlerA);
+			}
+		}
+		for (int i = 0; i < extractedCounts.length; i++) {
+			int insertedCount = extractedCounts[i];
+			if (insertedCount > 0) {
+				onInserted.accept(() -> ItemHandlerHelper.copyStackWithSize(stack, insertedCount));
+			}
+		}
+	}
+
+	private static void removeFromCounts(int[] counts, int countToRemove) {
+		for (int i = counts.length - 1; i >= 0 && countToRemove > 0; i--) {
+			int removed = Math.min(counts[i], countToRemove);
+			counts[i] -= removed;
+			countToRemove -= removed;
+		}
+	}
 
-			ItemStack resultStack = insertIntoInventory(slotStack, handlerB, true);
-			int countToExtract = slotStack.getCount() - resultStack.getCount();
-			if (countToExtract > 0 && handlerA.extractItem(slot, countToExtract, true).getCount() == countToExtract) {
-				InventoryHelper.insertIntoInventory(handlerA.extractItem(slot, countToExtract, false), handlerB, false);
-				onInserted.accept(() -> {
-					ItemStack copiedStack = slotStack.copy();
-					copiedStack.setCount(countToExtract);
-					return copiedStack;
-				});
+	private static ItemStack returnToSourceSlots(IItemHandler handler, List<Integer> slots, int[] extractedCounts, ItemStack remainingStack) {
+		for (int i = extractedCounts.length - 1; i >= 0 && !remainingStack.isEmpty(); i--) {
+			if (extractedCounts[i] == 0) {
+				continue;
 			}
+			int countToReturn = Math.min(extractedCounts[i], remainingStack.getCount());
+			ItemStack notReturned = handler.insertItem(slots.get(i), ItemHandlerHelper.copyStackWithSize(remainingStack, countToReturn), false);
+			int returnedCount = countToReturn - notReturned.getCount();
+			extractedCounts[i] -= returnedCount;
+			remainingStack = ItemHandlerHelper.copyStackWithSize(remainingStack, remainingStack.getCount() - returnedCount);
 		}
+		return remainingStack;
 	}
 
 	public static boolean isEmpty(IItemHandler itemHandler) {
+		if (itemHandler instanceof BackpackInventoryHandler) {
+			return ((BackpackInventoryHandler) itemHandler).isEmpty();
+		}
+
 		int slots = itemHandler.getSlots();
 		for (int slot = 0; slot < slots; slot++) {
 			if (!itemHandler.getStackInSlot(slot).isEmpty()) {
@@ -254,8 +370,8 @@ public class InventoryHelper {
 
 	static Map<ItemStackKey, Integer> getCompactedStacks(IItemHandler handler, Set<Integer> ignoreSlots) {
 		Map<ItemStackKey, Integer> ret = new HashMap<>();
-		iterate(handler, (slot, stack) -> {
-			if (stack.isEmpty() || ignoreSlots.contains(slot)) {
+		iterateNonEmpty(handler, (slot, stack) -> {
+			if (ignoreSlots.contains(slot)) {
 				return;
 			}
 			ItemStackKey itemStackKey = new ItemStackKey(stack);
@@ -264,29 +380,20 @@ public class InventoryHelper {
 		return ret;
 	}
 
-	public static List<ItemStack> getCompactedStacksSortedByCount(IItemHandler handler) {
-		Map<ItemStackKey, Integer> compactedStacks = getCompactedStacks(handler);
-		List<Map.Entry<ItemStackKey, Integer>> sortedList = new ArrayList<>(compactedStacks.entrySet());
-		sortedList.sort(InventorySorter.BY_COUNT);
+	public static List<ItemStack> getCompactedStacksSortedByCount(Map<ItemStackKey, Integer> compactedStacks, int maxStacks) {
+		InventorySorter.SortKey[] sortKeys = InventorySorter.getSortKeys(compactedStacks);
+		Arrays.sort(sortKeys, InventorySorter.BY_COUNT);
 
 		List<ItemStack> ret = new ArrayList<>();
-		sortedList.forEach(e -> {
-			ItemStack stackCopy = e.getKey().getStack().copy();
-			stackCopy.setCount(e.getValue());
-			ret.add(stackCopy);
-		});
+		for (int i = 0; i < sortKeys.length && i < maxStacks; i++) {
+			ret.add(ItemHandlerHelper.copyStackWithSize(sortKeys[i].getStackKey().getStack(), sortKeys[i].getCount()));
+		}
 		return ret;
 	}
 
 	public static Set<ItemStackKey> getUniqueStacks(IItemHandler handler) {
 		Set<ItemStackKey> uniqueStacks = new HashSet<>();
-		iterate(handler, (slot, stack) -> {
-			if (stack.isEmpty()) {
-				return;
-			}
-			ItemStackKey itemStackKey = new ItemStackKey(stack);
-			uniqueStacks.add(itemStackKey);
-		});
+		iterateNonEmpty(handler, (slot, stack) -> uniqueStacks.add(new ItemStackKey(stack)));
 		return uniqueStacks;
 	}
 
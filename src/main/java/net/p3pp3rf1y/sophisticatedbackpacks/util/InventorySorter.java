@@ -4,10 +4,11 @@ import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.util.ResourceLocation;
 import net.minecraftforge.items.IItemHandlerModifiable;
+import net.minecraftforge.items.ItemHandlerHelper;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -15,42 +16,31 @@ import java.util.Set;
 public class InventorySorter {
 	private InventorySorter() {}
 
-	public static final Comparator<Map.Entry<ItemStackKey, Integer>> BY_NAME = Comparator.comparing(o -> getRegistryName(o.getKey()));
+	public static final Comparator<SortKey> BY_NAME = Comparator.comparing(SortKey::getRegistryName);
 
-	public static final Comparator<Map.Entry<ItemStackKey, Integer>> BY_COUNT = (first, second) -> {
-		int ret = second.getValue().compareTo(first.getValue());
-		return ret != 0 ? ret : getRegistryName(first.getKey()).compareTo(getRegistryName(second.getKey()));
+	public static final Comparator<SortKey> BY_COUNT = (first, second) -> {
+		int ret = Integer.compare(second.getCount(), first.getCount());
+		return ret != 0 ? ret : first.getRegistryName().compareTo(second.getRegistryName());
 	};
 
-	public static final Comparator<Map.Entry<ItemStackKey, Integer>> BY_TAGS = new Comparator<Map.Entry<ItemStackKey, Integer>>() {
+	public static final Comparator<SortKey> BY_TAGS = new Comparator<SortKey>() {
 		@Override
-		public int compare(Map.Entry<ItemStackKey, Integer> first, Map.Entry<ItemStackKey, Integer> second) {
-			Item firstItem = first.getKey().getStack().getItem();
-			Item secondItem = second.getKey().getStack().getItem();
-			if (firstItem == secondItem) {
+		public int compare(SortKey first, SortKey second) {
+			if (first.getItem() == second.getItem()) {
 				return 0;
 			}
-			int ret = compareTags(firstItem.getTags(), secondItem.getTags());
-			return ret != 0 ? ret : getRegistryName(first.getKey()).compareTo(getRegistryName(second.getKey()));
+			int ret = compareTags(first.getSortedTags(), second.getSortedTags());
+			return ret != 0 ? ret : first.getRegistryName().compareTo(second.getRegistryName());
 		}
 
-		private int compareTags(Set<ResourceLocation> firstTags, Set<ResourceLocation> secondTags) {
+		private int compareTags(List<ResourceLocation> firstTags, List<ResourceLocation> secondTags) {
 			int ret = Integer.compare(secondTags.size(), firstTags.size());
 			if (ret != 0) {
 				return ret;
 			}
 
-			if (firstTags.size() == 1) {
-				return firstTags.iterator().next().compareTo(secondTags.iterator().next());
-			}
-
-			ArrayList<ResourceLocation> firstTagsSorted = new ArrayList<>(firstTags);
-			ArrayList<ResourceLocation> secondTagsSorted = new ArrayList<>(secondTags);
-			firstTagsSorted.sort(Comparator.naturalOrder());
-			secondTagsSorted.sort(Comparator.naturalOrder());
-
-			for (int i = 0; i < firstTagsSorted.size(); i++) {
-				ret = firstTagsSorted.get(i).compareTo(secondTagsSorted.get(i));
+			for (int i = 0; i < firstTags.size(); i++) {
+				ret = firstTags.get(i).compareTo(secondTags.get(i));
 				if (ret != 0) {
 					return ret;
 				}
@@ -59,37 +49,39 @@ public class InventorySorter {
 		}
 	};
 
-	private static String getRegistryName(ItemStackKey itemStackKey) {
-		//noinspection ConstantConditions - registryName is nonNull by the time it exists in itemstack form
-		return itemStackKey.getStack().getItem().getRegistryName().toString();
-	}
-
-	public static void sortHandler(IItemHandlerModifiable handler, Comparator<? super Map.Entry<ItemStackKey, Integer>> comparator, Set<Integer> noSortSlots) {
-		Map<ItemStackKey, Integer> compactedStacks = InventoryHelper.getCompactedStacks(handler, noSortSlots);
-		List<Map.Entry<ItemStackKey, Integer>> sortedList = new ArrayList<>(compactedStacks.entrySet());
-		sortedList.sort(comparator);
+	public static void sortHandler(IItemHandlerModifiable handler, Comparator<SortKey> comparator, Set<Integer> noSortSlots) {
+		SortKey[] sortKeys = getSortKeys(InventoryHelper.getCompactedStacks(handler, noSortSlots));
+		Arrays.sort(sortKeys, comparator);
 
 		int slots = handler.getSlots();
-		Iterator<Map.Entry<ItemStackKey, Integer>> it = sortedList.iterator();
-		ItemStackKey current = null;
+		int keyIndex = 0;
+		SortKey current = null;
 		int count = 0;
 		for (int slot = 0; slot < slots; slot++) {
 			if (noSortSlots.contains(slot)) {
 				continue;
 			}
-			if ((current == null || count <= 0) && it.hasNext()) {
-				Map.Entry<ItemStackKey, Integer> entry = it.next();
-				current = entry.getKey();
-				count = entry.getValue();
+			if ((current == null || count <= 0) && keyIndex < sortKeys.length) {
+				current = sortKeys[keyIndex++];
+				count = current.getCount();
 			}
 			if (current != null && count > 0) {
-				count -= placeStack(handler, current, count, slot);
+				count -= placeStack(handler, current.getStackKey(), count, slot);
 			} else {
 				emptySlot(handler, slot);
 			}
 		}
 	}
 
+	public static SortKey[] getSortKeys(Map<ItemStackKey, Integer> compactedStacks) {
+		SortKey[] sortKeys = new SortKey[compactedStacks.size()];
+		int i = 0;
+		for (Map.Entry<ItemStackKey, Integer> entry : compactedStacks.entrySet()) {
+			sortKeys[i++] = new SortKey(entry.getKey(), entry.getValue());
+		}
+		return sortKeys;
+	}
+
 	private static void emptySlot(IItemHandlerModifiable handler, int slot) {
 		if (!handler.getStackInSlot(slot).isEmpty()) {
 			handler.setStackInSlot(slot, ItemStack.EMPTY);
@@ -97,19 +89,59 @@ public class InventorySorter {
 	}
 
 	private static int placeStack(IItemHandlerModifiable handler, ItemStackKey current, int count, int slot) {
-		ItemStack copy = current.getStack().copy();
+		ItemStack stack = current.getStack();
 		int slotLimit = handler.getSlotLimit(slot);
 		int countPlaced;
 		if (slotLimit > 64) {
-			countPlaced = Math.min(count, slotLimit / 64 * copy.getMaxStackSize());
+			countPlaced = Math.min(count, slotLimit / 64 * stack.getMaxStackSize());
 		} else {
-			countPlaced = Math.min(count, copy.getMaxStackSize());
+			countPlaced = Math.min(count, stack.getMaxStackSize());
 		}
-		copy.setCount(countPlaced);
-		if (!ItemStack.areItemStacksEqual(handler.getStackInSlot(slot), copy)) {
-			handler.setStackInSlot(slot, copy);
+		//slots that already hold the target stack are left untouched so that only the slots that actually move get written and synced
+		ItemStack slotStack = handler.getStackInSlot(slot);
+		if (slotStack.getCount() != countPlaced || !ItemHandlerHelper.canItemStacksStack(slotStack, stack)) {
+			handler.setStackInSlot(slot, ItemHandlerHelper.copyStackWithSize(stack, countPlaced));
 		}
 		return countPlaced;
 	}
 
+	//values that comparators need are computed once per sorted stack instead of on every comparison
+	public static class SortKey {
+		private final ItemStackKey stackKey;
+		private final int count;
+		private final String registryName;
+		private List<ResourceLocation> sortedTags = null;
+
+		private SortKey(ItemStackKey stackKey, int count) {
+			this.stackKey = stackKey;
+			this.count = count;
+			//noinspection ConstantConditions - registryName is nonNull by the time it exists in itemstack form
+			registryName = stackKey.getStack().getItem().getRegistryName().toString();
+		}
+
+		public ItemStackKey getStackKey() {
+			return stackKey;
+		}
+
+		public int getCount() {
+			return count;
+		}
+
+		public String getRegistryName() {
+			return registryName;
+		}
+
+		private Item getItem() {
+			return stackKey.getStack().getItem();
+		}
+
+		private List<ResourceLocation> getSortedTags() {
+			if (sortedTags == null) {
+				List<ResourceLocation> tags = new ArrayList<>(getItem().getTags());
+				tags.sort(Comparator.naturalOrder());
+				sortedTags = tags;
+			}
+			return sortedTags;
+		}
+	}
 }
@@ -3,6 +3,7 @@ package net.p3pp3rf1y.sophisticatedbackpacks.util;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.inventory.EquipmentSlotType;
 import net.minecraft.item.ItemStack;
+import net.minecraftforge.event.entity.living.LivingEquipmentChangeEvent;
 import net.p3pp3rf1y.sophisticatedbackpacks.backpack.BackpackItem;
 
 import java.util.ArrayList;
@@ -10,6 +11,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.WeakHashMap;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
@@ -21,6 +23,9 @@ public class PlayerInventoryProvider {
 	private static final Map<String, PlayerInventoryHandler> playerInventoryHandlers = new LinkedHashMap<>();
 	private static final List<String> renderedHandlers = new ArrayList<>();
 	private static final String ARMOR_INVENTORY = "armor";
+	//backpack locations are cached until player's inventory changes so that events that fire often don't scan whole player inventory every time
+	private static final Map<PlayerEntity, BackpackLocations> serverBackpackLocations = new WeakHashMap<>();
+	private static final Map<PlayerEntity, BackpackLocations> clientBackpackLocations = new WeakHashMap<>();
 
 	static {
 		PlayerInventoryProvider.addPlayerInventoryHandler(MAIN_INVENTORY, player -> player.inventory.mainInventory.size(),
@@ -36,6 +41,8 @@ public class PlayerInventoryProvider {
 		playerInventoryHandlers.clear();
 		playerInventoryHandlers.put(name, new PlayerInventoryHandler(getSlotCount, getStackInSlot, setStackInSlot, visibleInGui, ownRenderer));
 		playerInventoryHandlers.putAll(temp);
+		serverBackpackLocations.clear();
+		clientBackpackLocations.clear();
 
 		if (rendered) {
 			ArrayList<String> tempRendered = new ArrayList<>(renderedHandlers);
@@ -74,6 +81,85 @@ public class PlayerInventoryProvider {
 		}
 	}
 
+	public static void runOnKnownBackpacks(PlayerEntity player, BackpackInventorySlotConsumer backpackInventorySlotConsumer) {
+		for (BackpackLocation location : getBackpackLocations(player)) {
+			//drops and other changes that bypass container slots leave stale locations behind, these get found again on next call
+			if (location.slot >= location.invHandler.getSlotCount(player)) {
+				invalidateBackpackLocations(player);
+				continue;
+			}
+			ItemStack stack = location.getStack(player);
+			if (!(stack.getItem() instanceof BackpackItem)) {
+				invalidateBackpackLocations(player);
+				continue;
+			}
+			if (backpackInventorySlotConsumer.accept(stack, location.handlerName, location.slot)) {
+				return;
+			}
+		}
+	}
+
+	private static List<BackpackLocation> getBackpackLocations(PlayerEntity player) {
+		Map<PlayerEntity, BackpackLocations> playerBackpackLocations = player.world.isRemote ? clientBackpackLocations : serverBackpackLocations;
+		//every change through container slots marks player inventory changed, pickups and equipment changes that don't go through slots invalidate the cache
+		int inventoryTimesChanged = player.inventory.getTimesChanged();
+		BackpackLocations backpackLocations = playerBackpackLocations.get(player);
+		if (backpackLocations == null || backpackLocations.inventoryTimesChanged != inventoryTimesChanged) {
+			backpackLocations = new BackpackLocations(inventoryTimesChanged, findBackpackLocations(player));
+			playerBackpackLocations.put(player, backpackLocations);
+		}
+		return backpackLocations.locations;
+	}
+
+	private static List<BackpackLocation> findBackpackLocations(PlayerEntity player) {
+		List<BackpackLocation> locations = new ArrayList<>();
+		for (Map.Entry<String, PlayerInventoryHandler> entry : playerInventoryHandlers.entrySet()) {
+			PlayerInventoryHandler invHandler = entry.getValue();
+			for (int slot = 0; slot < invHandler.getSlotCount(player); slot++) {
+				if (invHandler.getStackInSlot(player, slot).getItem() instanceof BackpackItem) {
+					locations.add(new BackpackLocation(entry.getKey(), invHandler, slot));
+				}
+			}
+		}
+		return locations;
+	}
+
+	public static void invalidateBackpackLocations(PlayerEntity player) {
+		(player.world.isRemote ? clientBackpackLocations : serverBackpackLocations).remove(player);
+	}
+
+	public static void onEquipmentChange(LivingEquipmentChangeEvent event) {
+		if (event.getEntityLiving() instanceof PlayerEntity) {
+			invalidateBackpackLocations((PlayerEntity) event.getEntityLiving());
+		}
+	}
+
+	private static class BackpackLocations {
+		private final int inventoryTimesChanged;
+		private final List<BackpackLocation> locations;
+
+		private BackpackLocations(int inventoryTimesChanged, List<BackpackLocation> locations) {
+			this.inventoryTimesChanged = inventoryTimesChanged;
+			this.locations = locations;
+		}
+	}
+
+	private static class BackpackLocation {
+		private final String handlerName;
+		private final PlayerInventoryHandler invHandler;
+		private final int slot;
+
+		private BackpackLocation(String handlerName, PlayerInventoryHandler invHandler, int slot) {
+			this.handlerName = handlerName;
+			this.invHandler = invHandler;
+			this.slot = slot;
+		}
+
+		private ItemStack getStack(PlayerEntity player) {
+			return invHandler.getStackInSlot(player, slot);
+		}
+	}
+
 	public interface BackpackInventorySlotConsumer {
 		boolean accept(ItemStack backpack, String inventoryHandlerName, int slot);
 	}
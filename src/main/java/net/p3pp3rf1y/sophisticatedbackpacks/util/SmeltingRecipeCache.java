@@ -0,0 +1,93 @@
+package net.p3pp3rf1y.sophisticatedbackpacks.util;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.crafting.FurnaceRecipe;
+import net.minecraft.item.crafting.IRecipe;
+import net.minecraft.item.crafting.IRecipeType;
+import net.minecraft.item.crafting.Ingredient;
+import net.minecraft.item.crafting.RecipeManager;
+import net.minecraft.util.NonNullList;
+import net.minecraft.world.World;
+import net.minecraftforge.common.ForgeHooks;
+import net.minecraftforge.items.ItemStackHandler;
+import net.minecraftforge.items.wrapper.RecipeWrapper;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class SmeltingRecipeCache {
+	private final WeakReference<RecipeManager> recipeManager;
+	private final Map<Item, List<FurnaceRecipe>> itemRecipes = new HashMap<>();
+	//recipes with ingredients that can't list all the items they match need to be checked for every item
+	private final List<FurnaceRecipe> unindexedRecipes = new ArrayList<>();
+	private final Map<Item, Integer> burnTimes = new ConcurrentHashMap<>();
+
+	SmeltingRecipeCache(RecipeManager recipeManager) {
+		this.recipeManager = new WeakReference<>(recipeManager);
+		for (IRecipe<?> recipe : recipeManager.getRecipes()) {
+			if (recipe.getType() == IRecipeType.SMELTING && recipe instanceof FurnaceRecipe) {
+				addRecipe((FurnaceRecipe) recipe);
+			}
+		}
+	}
+
+	private void addRecipe(FurnaceRecipe recipe) {
+		Set<Item> items = new HashSet<>();
+		for (Ingredient ingredient : recipe.getIngredients()) {
+			ItemStack[] matchingStacks = ingredient.getMatchingStacks();
+			if (!ingredient.isSimple() || matchingStacks.length == 0) {
+				unindexedRecipes.add(recipe);
+				return;
+			}
+			for (ItemStack matchingStack : matchingStacks) {
+				items.add(matchingStack.getItem());
+			}
+		}
+		items.forEach(item -> itemRecipes.computeIfAbsent(item, i -> new ArrayList<>()).add(recipe));
+	}
+
+	boolean isUpToDate(World world) {
+		return recipeManager.get() == world.getRecipeManager();
+	}
+
+	Optional<FurnaceRecipe> getSmeltingRecipe(ItemStack stack, World world) {
+		if (stack.isEmpty()) {
+			return Optional.empty();
+		}
+
+		List<FurnaceRecipe> candidates = itemRecipes.getOrDefault(stack.getItem(), Collections.emptyList());
+		if (candidates.isEmpty() && unindexedRecipes.isEmpty()) {
+			return Optional.empty();
+		}
+
+		RecipeWrapper inventory = new RecipeWrapper(new ItemStackHandler(NonNullList.from(ItemStack.EMPTY, stack)));
+		Optional<FurnaceRecipe> recipe = getFirstMatchingRecipe(candidates, inventory, world);
+		return recipe.isPresent() ? recipe : getFirstMatchingRecipe(unindexedRecipes, inventory, world);
+	}
+
+	private Optional<FurnaceRecipe> getFirstMatchingRecipe(List<FurnaceRecipe> recipes, RecipeWrapper inventory, World world) {
+		for (FurnaceRecipe recipe : recipes) {
+			if (recipe.matches(inventory, world)) {
+				return Optional.of(recipe);
+			}
+		}
+		return Optional.empty();
+	}
+
+	int getBurnTime(ItemStack fuel) {
+		if (fuel.hasTag()) {
+			//burn time may depend on nbt so it can't be cached per item
+			return ForgeHooks.getBurnTime(fuel);
+		}
+		return burnTimes.computeIfAbsent(fuel.getItem(), item -> ForgeHooks.getBurnTime(fuel));
+	}
+}
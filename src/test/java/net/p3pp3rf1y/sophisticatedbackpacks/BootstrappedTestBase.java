@@ -0,0 +1,12 @@
+package net.p3pp3rf1y.sophisticatedbackpacks;
+
+import net.minecraft.util.registry.Bootstrap;
+import org.testng.annotations.BeforeSuite;
+
+//registries need to be bootstrapped before items and stacks can be created outside of running game
+public abstract class BootstrappedTestBase {
+	@BeforeSuite(alwaysRun = true)
+	public void bootstrap() {
+		Bootstrap.register();
+	}
+}
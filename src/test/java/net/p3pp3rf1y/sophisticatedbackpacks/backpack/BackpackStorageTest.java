@@ -0,0 +1,98 @@
+package net.p3pp3rf1y.sophisticatedbackpacks.backpack;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.nbt.CompoundNBT;
+import net.p3pp3rf1y.sophisticatedbackpacks.BootstrappedTestBase;
+import net.p3pp3rf1y.sophisticatedbackpacks.backpack.wrapper.BackpackInventoryHandler;
+import net.p3pp3rf1y.sophisticatedbackpacks.backpack.wrapper.BackpackUpgradeHandler;
+import org.testng.annotations.Test;
+
+import java.util.UUID;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class BackpackStorageTest extends BootstrappedTestBase {
+	private static BackpackStorage createStorage() {
+		return new BackpackStorage(null, false, false, 16, false);
+	}
+
+	private static BackpackInventoryHandler getInventoryHandler(BackpackStorage storage, UUID uuid, int slots) {
+		return storage.getOrCreateInventoryHandler(uuid, slots, contents -> new BackpackInventoryHandler(slots, getUpgradeHandler(storage, uuid, 1), contents, () -> storage.markBackpackContentsDirty(uuid), 64));
+	}
+
+	private static BackpackUpgradeHandler getUpgradeHandler(BackpackStorage storage, UUID uuid, int slots) {
+		return storage.getOrCreateUpgradeHandler(uuid, slots, contents -> new BackpackUpgradeHandler(slots, null, contents, () -> storage.markBackpackContentsDirty(uuid)));
+	}
+
+	@Test
+	public void handlersOfSameContentsAreShared() {
+		BackpackStorage storage = createStorage();
+		UUID uuid = UUID.randomUUID();
+
+		assertSame(getInventoryHandler(storage, uuid, 3), getInventoryHandler(storage, uuid, 3));
+		assertSame(getUpgradeHandler(storage, uuid, 1), getUpgradeHandler(storage, uuid, 1));
+	}
+
+	@Test
+	public void handlerIsResizedInPlaceAndKeepsStacks() {
+		BackpackStorage storage = createStorage();
+		UUID uuid = UUID.randomUUID();
+		BackpackInventoryHandler handler = getInventoryHandler(storage, uuid, 3);
+		handler.setStackInSlot(2, new ItemStack(Items.DIAMOND, 10));
+
+		BackpackInventoryHandler resizedHandler = getInventoryHandler(storage, uuid, 5);
+
+		assertSame(resizedHandler, handler);
+		assertEquals(handler.getSlots(), 5);
+		assertEquals(handler.getStackInSlot(2).getCount(), 10);
+		assertEquals(handler.nextEmptySlot(3), 3);
+	}
+
+	@Test
+	public void handlerIsReloadedInPlaceWhenContentsAreRecreated() {
+		BackpackStorage storage = createStorage();
+		UUID uuid = UUID.randomUUID();
+		BackpackInventoryHandler handler = getInventoryHandler(storage, uuid, 3);
+		handler.setStackInSlot(0, new ItemStack(Items.DIAMOND, 10));
+
+		storage.removeBackpackContents(uuid);
+		CompoundNBT contents = storage.getOrCreateBackpackContents(uuid);
+
+		assertTrue(handler.isBackedBy(contents));
+		assertTrue(handler.isEmpty());
+		assertSame(getInventoryHandler(storage, uuid, 3), handler);
+	}
+
+	@Test
+	public void handlerIsReloadedInPlaceWhenInventoryIsSet() {
+		BackpackStorage storage = createStorage();
+		UUID uuid = UUID.randomUUID();
+		BackpackInventoryHandler handler = getInventoryHandler(storage, uuid, 3);
+		BackpackInventoryHandler otherHandler = new BackpackInventoryHandler(3, null, new CompoundNBT(), () -> {}, 64);
+		otherHandler.setStackInSlot(1, new ItemStack(Items.EMERALD, 5));
+		CompoundNBT newContents = new CompoundNBT();
+		newContents.put(BackpackInventoryHandler.INVENTORY_TAG, otherHandler.serializeNBT());
+
+		storage.setBackpackContents(uuid, newContents);
+
+		assertEquals(handler.getStackInSlot(1).getItem(), Items.EMERALD);
+		assertEquals(handler.getStackInSlot(1).getCount(), 5);
+		assertSame(getInventoryHandler(storage, uuid, 3), handler);
+	}
+
+	@Test
+	public void changesOfSharedHandlerAreInContents() {
+		BackpackStorage storage = createStorage();
+		UUID uuid = UUID.randomUUID();
+		getInventoryHandler(storage, uuid, 3).setStackInSlot(0, new ItemStack(Items.DIAMOND, 10));
+
+		CompoundNBT contents = storage.getOrCreateBackpackContents(uuid);
+		BackpackInventoryHandler loadedHandler = new BackpackInventoryHandler(3, null, contents, () -> {}, 64);
+
+		assertEquals(loadedHandler.getStackInSlot(0).getCount(), 10);
+		assertTrue(storage.getDirtyBackpackUuids().contains(uuid));
+	}
+}
@@ -0,0 +1,23 @@
+package net.p3pp3rf1y.sophisticatedbackpacks.backpack;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class BackpackTickSchedulerTest {
+	@Test
+	public void heldBackpackSeenInCurrentTickIsValid() {
+		assertTrue(BackpackTickScheduler.wasHeldBackpackSeenRecently(100, 100));
+	}
+
+	@Test
+	public void heldBackpackSeenInPreviousTickIsValid() {
+		assertTrue(BackpackTickScheduler.wasHeldBackpackSeenRecently(99, 100));
+	}
+
+	@Test
+	public void heldBackpackNotSeenForMoreThanOneTickIsNotValid() {
+		assertFalse(BackpackTickScheduler.wasHeldBackpackSeenRecently(98, 100));
+	}
+}
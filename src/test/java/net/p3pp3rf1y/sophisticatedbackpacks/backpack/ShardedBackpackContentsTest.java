@@ -0,0 +1,139 @@
+package net.p3pp3rf1y.sophisticatedbackpacks.backpack;
+
+import net.minecraft.nbt.CompoundNBT;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class ShardedBackpackContentsTest {
+	private Path shardsFolder;
+
+	@BeforeMethod
+	public void createShardsFolder() throws IOException {
+		shardsFolder = Files.createTempDirectory("backpackShards");
+	}
+
+	@AfterMethod(alwaysRun = true)
+	public void deleteShardsFolder() throws IOException {
+		ShardedBackpackContents.awaitPendingSaves();
+		try (Stream<Path> paths = Files.walk(shardsFolder)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	private static CompoundNBT createContents(String value) {
+		CompoundNBT contents = new CompoundNBT();
+		contents.putString("value", value);
+		return contents;
+	}
+
+	private Path getShardFile(UUID backpackUuid) {
+		String uuidString = backpackUuid.toString();
+		return shardsFolder.resolve(uuidString.substring(0, 2)).resolve(uuidString + ".dat");
+	}
+
+	@Test
+	public void savedContentsAreLoadedBack() {
+		ShardedBackpackContents contents = new ShardedBackpackContents(shardsFolder, false);
+		UUID backpackUuid = UUID.randomUUID();
+
+		contents.save(backpackUuid, createContents("first"));
+
+		assertTrue(Files.exists(getShardFile(backpackUuid)));
+		assertEquals(new ShardedBackpackContents(shardsFolder, false).load(backpackUuid), Optional.of(createContents("first")));
+		assertEquals(contents.getBackpackUuids(), Collections.singleton(backpackUuid));
+	}
+
+	@Test
+	public void missingContentsAreNotLoaded() {
+		assertFalse(new ShardedBackpackContents(shardsFolder, false).load(UUID.randomUUID()).isPresent());
+	}
+
+	@Test
+	public void deletedContentsAreNotLoaded() {
+		ShardedBackpackContents contents = new ShardedBackpackContents(shardsFolder, false);
+		UUID backpackUuid = UUID.randomUUID();
+		contents.save(backpackUuid, createContents("first"));
+
+		contents.delete(backpackUuid);
+
+		assertFalse(contents.load(backpackUuid).isPresent());
+		assertTrue(contents.getBackpackUuids().isEmpty());
+	}
+
+	@Test
+	public void asyncSavedContentsAreLoadedBeforeAndAfterWrite() {
+		ShardedBackpackContents contents = new ShardedBackpackContents(shardsFolder, true);
+		UUID backpackUuid = UUID.randomUUID();
+		CompoundNBT savedContents = createContents("first");
+
+		contents.save(backpackUuid, savedContents);
+		savedContents.putString("value", "changed after save");
+
+		assertEquals(contents.load(backpackUuid), Optional.of(createContents("first")));
+		ShardedBackpackContents.awaitPendingSaves();
+		assertEquals(new ShardedBackpackContents(shardsFolder, false).load(backpackUuid), Optional.of(createContents("first")));
+	}
+
+	@Test
+	public void laterAsyncSaveIsTheOneOnDisk() {
+		ShardedBackpackContents contents = new ShardedBackpackContents(shardsFolder, true);
+		UUID backpackUuid = UUID.randomUUID();
+
+		contents.save(backpackUuid, createContents("first"));
+		contents.save(backpackUuid, createContents("second"));
+		ShardedBackpackContents.awaitPendingSaves();
+
+		assertEquals(new ShardedBackpackContents(shardsFolder, false).load(backpackUuid), Optional.of(createContents("second")));
+	}
+
+	@Test
+	public void saveNowSupersedesPendingAsyncSave() {
+		ShardedBackpackContents contents = new ShardedBackpackContents(shardsFolder, true);
+		UUID backpackUuid = UUID.randomUUID();
+
+		contents.save(backpackUuid, createContents("first"));
+		contents.saveNow(backpackUuid, createContents("second"));
+		ShardedBackpackContents.awaitPendingSaves();
+
+		assertEquals(new ShardedBackpackContents(shardsFolder, false).load(backpackUuid), Optional.of(createContents("second")));
+	}
+
+	@Test
+	public void asyncDeleteSupersedesPendingAsyncSave() {
+		ShardedBackpackContents contents = new ShardedBackpackContents(shardsFolder, true);
+		UUID backpackUuid = UUID.randomUUID();
+
+		contents.save(backpackUuid, createContents("first"));
+		contents.delete(backpackUuid);
+
+		assertFalse(contents.load(backpackUuid).isPresent());
+		ShardedBackpackContents.awaitPendingSaves();
+		assertFalse(Files.exists(getShardFile(backpackUuid)));
+	}
+
+	@Test
+	public void corruptedShardIsMovedAside() throws IOException {
+		UUID backpackUuid = UUID.randomUUID();
+		Path shardFile = getShardFile(backpackUuid);
+		Files.createDirectories(shardFile.getParent());
+		Files.write(shardFile, new byte[] {1, 2, 3});
+
+		assertFalse(new ShardedBackpackContents(shardsFolder, false).load(backpackUuid).isPresent());
+		assertFalse(Files.exists(shardFile));
+		assertTrue(Files.exists(shardFile.resolveSibling(shardFile.getFileName() + ".corrupted")));
+	}
+}
@@ -0,0 +1,118 @@
+package net.p3pp3rf1y.sophisticatedbackpacks.backpack.wrapper;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.nbt.CompoundNBT;
+import net.p3pp3rf1y.sophisticatedbackpacks.BootstrappedTestBase;
+import net.p3pp3rf1y.sophisticatedbackpacks.util.ItemStackKey;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class BackpackInventoryHandlerTest extends BootstrappedTestBase {
+	private static BackpackInventoryHandler createHandler(int slots) {
+		return new BackpackInventoryHandler(slots, null, new CompoundNBT(), () -> {}, 64);
+	}
+
+	private static ItemStackKey diamondKey() {
+		return new ItemStackKey(new ItemStack(Items.DIAMOND));
+	}
+
+	@Test
+	public void emptyHandlerHasNoOccupiedOrMatchingSlots() {
+		BackpackInventoryHandler handler = createHandler(4);
+
+		assertTrue(handler.isEmpty());
+		assertEquals(handler.nextOccupiedSlot(0), -1);
+		assertEquals(handler.nextEmptySlot(0), 0);
+		assertEquals(handler.nextSlotWithMatchingStack(diamondKey(), 0), -1);
+		assertTrue(handler.getSlotStackKeys().isEmpty());
+	}
+
+	@Test
+	public void insertedStacksAreIndexedBySlot() {
+		BackpackInventoryHandler handler = createHandler(4);
+		handler.insertItem(1, new ItemStack(Items.DIAMOND, 10), false);
+		handler.insertItem(3, new ItemStack(Items.DIAMOND, 5), false);
+		handler.insertItem(2, new ItemStack(Items.EMERALD, 5), false);
+
+		assertFalse(handler.isEmpty());
+		assertEquals(handler.nextOccupiedSlot(0), 1);
+		assertEquals(handler.nextEmptySlot(0), 0);
+		assertEquals(handler.nextEmptySlot(1), -1);
+		assertEquals(handler.nextSlotWithMatchingStack(diamondKey(), 0), 1);
+		assertEquals(handler.nextSlotWithMatchingStack(diamondKey(), 2), 3);
+		assertEquals(handler.getSlotStackKeys().size(), 2);
+	}
+
+	@Test
+	public void extractedSlotsAreRemovedFromIndex() {
+		BackpackInventoryHandler handler = createHandler(2);
+		handler.insertItem(0, new ItemStack(Items.DIAMOND, 10), false);
+		int keysVersion = handler.getSlotStackKeysVersion();
+
+		handler.extractItem(0, 4, false);
+		assertEquals(handler.nextSlotWithMatchingStack(diamondKey(), 0), 0);
+		assertEquals(handler.getSlotStackKeysVersion(), keysVersion);
+
+		handler.extractItem(0, 6, false);
+		assertTrue(handler.isEmpty());
+		assertEquals(handler.nextEmptySlot(0), 0);
+		assertEquals(handler.nextSlotWithMatchingStack(diamondKey(), 0), -1);
+		assertTrue(handler.getSlotStackKeys().isEmpty());
+		assertTrue(handler.getSlotStackKeysVersion() > keysVersion);
+	}
+
+	@Test
+	public void replacedStackMovesSlotToNewKey() {
+		BackpackInventoryHandler handler = createHandler(2);
+		handler.setStackInSlot(0, new ItemStack(Items.DIAMOND, 10));
+		handler.setStackInSlot(0, new ItemStack(Items.EMERALD, 10));
+
+		assertEquals(handler.nextSlotWithMatchingStack(diamondKey(), 0), -1);
+		assertEquals(handler.nextSlotWithMatchingStack(new ItemStackKey(new ItemStack(Items.EMERALD)), 0), 0);
+		assertEquals(handler.getSlotStackKeys().size(), 1);
+	}
+
+	@Test
+	public void stackShrunkOutsideOfHandlerIsNotReportedAsOccupied() {
+		BackpackInventoryHandler handler = createHandler(2);
+		handler.insertItem(0, new ItemStack(Items.DIAMOND, 10), false);
+		handler.getStackInSlot(0).shrink(10);
+
+		assertTrue(handler.isEmpty());
+		assertEquals(handler.nextOccupiedSlot(0), -1);
+		assertEquals(handler.nextEmptySlot(0), 0);
+	}
+
+	@Test
+	public void stackShrunkOutsideOfHandlerIsOfferedAsEmptyAfterOccupiedSlots() {
+		BackpackInventoryHandler handler = createHandler(3);
+		handler.insertItem(0, new ItemStack(Items.DIAMOND, 10), false);
+		handler.insertItem(1, new ItemStack(Items.EMERALD, 10), false);
+		handler.insertItem(2, new ItemStack(Items.DIAMOND, 10), false);
+		handler.getStackInSlot(1).shrink(10);
+
+		assertEquals(handler.nextEmptySlot(0), 1);
+		assertEquals(handler.nextEmptySlot(2), -1);
+		assertEquals(handler.insertItem(1, new ItemStack(Items.DIAMOND, 5), false).getCount(), 0);
+		assertEquals(handler.getStackInSlot(1).getCount(), 5);
+		assertEquals(handler.nextSlotWithMatchingStack(diamondKey(), 1), 1);
+	}
+
+	@Test
+	public void indexIsRebuiltFromSavedContents() {
+		BackpackInventoryHandler handler = createHandler(3);
+		handler.insertItem(2, new ItemStack(Items.DIAMOND, 10), false);
+		CompoundNBT contentsNbt = new CompoundNBT();
+		contentsNbt.put(BackpackInventoryHandler.INVENTORY_TAG, handler.serializeNBT());
+
+		BackpackInventoryHandler loadedHandler = new BackpackInventoryHandler(3, null, contentsNbt, () -> {}, 64);
+
+		assertEquals(loadedHandler.nextSlotWithMatchingStack(diamondKey(), 0), 2);
+		assertEquals(loadedHandler.nextEmptySlot(0), 0);
+		assertEquals(loadedHandler.getStackInSlot(2).getCount(), 10);
+	}
+}
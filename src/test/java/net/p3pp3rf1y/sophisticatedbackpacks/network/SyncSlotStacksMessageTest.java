@@ -0,0 +1,125 @@
+package net.p3pp3rf1y.sophisticatedbackpacks.network;
+
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.inventory.Inventory;
+import net.minecraft.inventory.container.Container;
+import net.minecraft.inventory.container.Slot;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.network.PacketBuffer;
+import net.p3pp3rf1y.sophisticatedbackpacks.BootstrappedTestBase;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class SyncSlotStacksMessageTest extends BootstrappedTestBase {
+	private static byte[] encode(SyncSlotStacksMessage msg) {
+		PacketBuffer packetBuffer = new PacketBuffer(Unpooled.buffer());
+		SyncSlotStacksMessage.encode(msg, packetBuffer);
+		return ByteBufUtil.getBytes(packetBuffer);
+	}
+
+	private static SyncSlotStacksMessage decode(byte[] bytes) {
+		PacketBuffer packetBuffer = new PacketBuffer(Unpooled.wrappedBuffer(bytes));
+		SyncSlotStacksMessage msg = SyncSlotStacksMessage.decode(packetBuffer);
+		assertFalse(packetBuffer.isReadable());
+		return msg;
+	}
+
+	private static Container createContainer(ItemStack... stacks) {
+		Inventory inventory = new Inventory(stacks) {
+			@Override
+			public int getInventoryStackLimit() {
+				return Integer.MAX_VALUE;
+			}
+		};
+		return new Container(null, 1) {
+			{
+				for (int slot = 0; slot < stacks.length; slot++) {
+					addSlot(new Slot(inventory, slot, 0, 0));
+				}
+			}
+
+			@Override
+			public boolean canInteractWith(PlayerEntity playerIn) {
+				return true;
+			}
+		};
+	}
+
+	@Test
+	public void stackAndCountChangesSurviveEncodeAndDecode() {
+		SyncSlotStacksMessage msg = new SyncSlotStacksMessage(200);
+		msg.addStackChange(3, new ItemStack(Items.DIAMOND, 1000));
+		msg.addCountChange(70, 250);
+		msg.addStackChange(5, ItemStack.EMPTY);
+
+		byte[] encoded = encode(msg);
+
+		assertEquals(encode(decode(encoded)), encoded);
+	}
+
+	@Test
+	public void messageWithoutChangesSurvivesEncodeAndDecode() {
+		byte[] encoded = encode(new SyncSlotStacksMessage(1));
+
+		assertEquals(encode(decode(encoded)), encoded);
+	}
+
+	@Test
+	public void countChangeIsSmallerThanFullStackChange() {
+		SyncSlotStacksMessage stackChange = new SyncSlotStacksMessage(1);
+		stackChange.addStackChange(0, new ItemStack(Items.DIAMOND, 100));
+		SyncSlotStacksMessage countChange = new SyncSlotStacksMessage(1);
+		countChange.addCountChange(0, 100);
+
+		assertTrue(encode(countChange).length < encode(stackChange).length);
+	}
+
+	@Test
+	public void countChangeKeepsRestOfStackClientHas() {
+		ItemStack taggedStack = new ItemStack(Items.DIAMOND, 10);
+		taggedStack.getOrCreateTag().putString("test", "value");
+		Container container = createContainer(taggedStack, ItemStack.EMPTY);
+		SyncSlotStacksMessage msg = new SyncSlotStacksMessage(1);
+		msg.addCountChange(0, 250);
+
+		assertTrue(decode(encode(msg)).applyTo(container));
+
+		ItemStack slotStack = container.getSlot(0).getStack();
+		assertEquals(slotStack.getCount(), 250);
+		assertEquals(slotStack.getItem(), Items.DIAMOND);
+		assertEquals(slotStack.getTag(), taggedStack.getTag());
+	}
+
+	@Test
+	public void countChangeForSlotEmptyOnClientRequiresResync() {
+		Container container = createContainer(ItemStack.EMPTY, new ItemStack(Items.DIAMOND, 10));
+		SyncSlotStacksMessage msg = new SyncSlotStacksMessage(1);
+		msg.addCountChange(0, 250);
+		msg.addCountChange(1, 20);
+
+		assertFalse(decode(encode(msg)).applyTo(container));
+
+		assertTrue(container.getSlot(0).getStack().isEmpty());
+		assertEquals(container.getSlot(1).getStack().getCount(), 20);
+	}
+
+	@Test
+	public void stackChangeReplacesWhatClientHas() {
+		Container container = createContainer(new ItemStack(Items.DIAMOND, 10), new ItemStack(Items.STONE));
+		SyncSlotStacksMessage msg = new SyncSlotStacksMessage(1);
+		msg.addStackChange(0, new ItemStack(Items.EMERALD, 300));
+		msg.addStackChange(1, ItemStack.EMPTY);
+
+		assertTrue(decode(encode(msg)).applyTo(container));
+
+		assertEquals(container.getSlot(0).getStack().getItem(), Items.EMERALD);
+		assertEquals(container.getSlot(0).getStack().getCount(), 300);
+		assertTrue(container.getSlot(1).getStack().isEmpty());
+	}
+}
@@ -0,0 +1,81 @@
+package net.p3pp3rf1y.sophisticatedbackpacks.upgrades;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.p3pp3rf1y.sophisticatedbackpacks.BootstrappedTestBase;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class FilterMatcherTest extends BootstrappedTestBase {
+	@Test
+	public void matcherOfEmptyFiltersIsEmpty() {
+		FilterMatcher matcher = FilterMatcher.compile(Arrays.asList(ItemStack.EMPTY, ItemStack.EMPTY), PrimaryMatch.ITEM, false, false);
+
+		assertTrue(matcher.isEmpty());
+		assertFalse(matcher.matches(new ItemStack(Items.DIAMOND)));
+	}
+
+	@Test
+	public void itemMatchMatchesOnlySameItem() {
+		FilterMatcher matcher = FilterMatcher.compile(Arrays.asList(ItemStack.EMPTY, new ItemStack(Items.DIAMOND)), PrimaryMatch.ITEM, false, false);
+
+		assertFalse(matcher.isEmpty());
+		assertTrue(matcher.matches(new ItemStack(Items.DIAMOND, 20)));
+		assertFalse(matcher.matches(new ItemStack(Items.EMERALD)));
+		assertFalse(matcher.matches(ItemStack.EMPTY));
+	}
+
+	@Test
+	public void modMatchMatchesAnyItemOfSameMod() {
+		FilterMatcher matcher = FilterMatcher.compile(Collections.singletonList(new ItemStack(Items.DIAMOND)), PrimaryMatch.MOD, false, false);
+
+		assertTrue(matcher.matches(new ItemStack(Items.EMERALD)));
+	}
+
+	@Test
+	public void filterWithoutTagsKeepsTagsMatcherNonEmpty() {
+		ItemStack filter = new ItemStack(Items.DIAMOND);
+		FilterMatcher matcher = FilterMatcher.compile(Collections.singletonList(filter), PrimaryMatch.TAGS, false, false);
+
+		assertTrue(filter.getItem().getTags().isEmpty());
+		assertFalse(matcher.isEmpty());
+		assertFalse(matcher.matches(new ItemStack(Items.DIAMOND)));
+	}
+
+	@Test
+	public void nbtMatchRequiresSameTag() {
+		ItemStack filter = new ItemStack(Items.DIAMOND);
+		filter.getOrCreateTag().putString("test", "value");
+		FilterMatcher matcher = FilterMatcher.compile(Collections.singletonList(filter), PrimaryMatch.ITEM, false, true);
+
+		assertFalse(matcher.matches(new ItemStack(Items.DIAMOND)));
+		assertTrue(matcher.matches(filter.copy()));
+	}
+
+	@Test
+	public void nbtMatchIgnoresDamageUnlessDurabilityIsMatched() {
+		ItemStack filter = new ItemStack(Items.DIAMOND_SWORD);
+		ItemStack damagedSword = new ItemStack(Items.DIAMOND_SWORD);
+		damagedSword.setDamage(5);
+
+		assertTrue(FilterMatcher.compile(Collections.singletonList(filter), PrimaryMatch.ITEM, false, true).matches(damagedSword));
+		assertFalse(FilterMatcher.compile(Collections.singletonList(filter), PrimaryMatch.ITEM, true, true).matches(damagedSword));
+	}
+
+	@Test
+	public void onlyTagsMatcherNeedsCompilingAgainAfterTagsUpdate() {
+		FilterMatcher tagsMatcher = FilterMatcher.compile(Collections.singletonList(new ItemStack(Items.DIAMOND)), PrimaryMatch.TAGS, false, false);
+		FilterMatcher itemMatcher = FilterMatcher.compile(Collections.singletonList(new ItemStack(Items.DIAMOND)), PrimaryMatch.ITEM, false, false);
+		assertTrue(tagsMatcher.isUpToDate());
+
+		FilterMatcher.onTagsUpdated(null);
+
+		assertFalse(tagsMatcher.isUpToDate());
+		assertTrue(itemMatcher.isUpToDate());
+	}
+}
@@ -0,0 +1,82 @@
+package net.p3pp3rf1y.sophisticatedbackpacks.util;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraftforge.items.ItemHandlerHelper;
+import net.minecraftforge.items.ItemStackHandler;
+import net.p3pp3rf1y.sophisticatedbackpacks.BootstrappedTestBase;
+import org.testng.annotations.Test;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class InventoryHelperTest extends BootstrappedTestBase {
+	private static ItemStackHandler createHandler(ItemStack... stacks) {
+		ItemStackHandler handler = new ItemStackHandler(stacks.length);
+		for (int slot = 0; slot < stacks.length; slot++) {
+			handler.setStackInSlot(slot, stacks[slot]);
+		}
+		return handler;
+	}
+
+	@Test
+	public void transferMovesAllStacksOfKindThatFit() {
+		ItemStackHandler source = createHandler(new ItemStack(Items.DIAMOND, 32), new ItemStack(Items.DIAMOND, 16));
+		ItemStackHandler target = createHandler(ItemStack.EMPTY);
+		AtomicInteger insertedCount = new AtomicInteger(0);
+
+		InventoryHelper.transfer(source, target, s -> insertedCount.addAndGet(s.get().getCount()), null);
+
+		assertTrue(source.getStackInSlot(0).isEmpty());
+		assertTrue(source.getStackInSlot(1).isEmpty());
+		assertEquals(target.getStackInSlot(0).getCount(), 48);
+		assertEquals(insertedCount.get(), 48);
+	}
+
+	@Test
+	public void transferLeavesWhatDoesNotFitInSourceSlots() {
+		ItemStackHandler source = createHandler(new ItemStack(Items.DIAMOND, 32), new ItemStack(Items.DIAMOND, 32), new ItemStack(Items.DIAMOND, 32));
+		ItemStackHandler target = createHandler(new ItemStack(Items.DIAMOND, 20));
+		AtomicInteger insertedCount = new AtomicInteger(0);
+
+		InventoryHelper.transfer(source, target, s -> insertedCount.addAndGet(s.get().getCount()), null);
+
+		assertEquals(target.getStackInSlot(0).getCount(), 64);
+		assertEquals(source.getStackInSlot(0).getCount(), 0);
+		assertEquals(source.getStackInSlot(1).getCount(), 20);
+		assertEquals(source.getStackInSlot(2).getCount(), 32);
+		assertEquals(insertedCount.get(), 44);
+	}
+
+	@Test
+	public void transferReturnsLeftoversToSourceSlotsWhenTargetAcceptsLessThanSimulated() {
+		ItemStackHandler source = createHandler(new ItemStack(Items.DIAMOND, 32), new ItemStack(Items.DIAMOND, 32));
+		ItemStackHandler target = new ItemStackHandler(1) {
+			@Nonnull
+			@Override
+			public ItemStack insertItem(int slot, @Nonnull ItemStack stack, boolean simulate) {
+				if (simulate || stack.getCount() <= 10) {
+					return super.insertItem(slot, stack, simulate);
+				}
+				super.insertItem(slot, ItemHandlerHelper.copyStackWithSize(stack, 10), false);
+				return ItemHandlerHelper.copyStackWithSize(stack, stack.getCount() - 10);
+			}
+		};
+		AtomicInteger insertedCount = new AtomicInteger(0);
+		AtomicInteger insertCalls = new AtomicInteger(0);
+
+		InventoryHelper.transfer(source, target, s -> {
+			insertCalls.incrementAndGet();
+			insertedCount.addAndGet(s.get().getCount());
+		}, null);
+
+		assertEquals(target.getStackInSlot(0).getCount(), 10);
+		assertEquals(source.getStackInSlot(0).getCount(), 22);
+		assertEquals(source.getStackInSlot(1).getCount(), 32);
+		assertEquals(insertedCount.get(), 10);
+		assertEquals(insertCalls.get(), 1);
+	}
+}
@@ -0,0 +1,79 @@
+package net.p3pp3rf1y.sophisticatedbackpacks.util;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraftforge.items.ItemStackHandler;
+import net.p3pp3rf1y.sophisticatedbackpacks.BootstrappedTestBase;
+import org.testng.annotations.Test;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class InventorySorterTest extends BootstrappedTestBase {
+	private static class WriteRecordingHandler extends ItemStackHandler {
+		private final List<Integer> writtenSlots = new ArrayList<>();
+
+		private WriteRecordingHandler(ItemStack... slotStacks) {
+			super(slotStacks.length);
+			for (int slot = 0; slot < slotStacks.length; slot++) {
+				stacks.set(slot, slotStacks[slot]);
+			}
+		}
+
+		@Override
+		public void setStackInSlot(int slot, @Nonnull ItemStack stack) {
+			writtenSlots.add(slot);
+			super.setStackInSlot(slot, stack);
+		}
+	}
+
+	@Test
+	public void sortedInventoryIsNotWritten() {
+		WriteRecordingHandler handler = new WriteRecordingHandler(new ItemStack(Items.DIAMOND, 64), new ItemStack(Items.DIAMOND, 10), new ItemStack(Items.STONE, 5), ItemStack.EMPTY);
+
+		InventorySorter.sortHandler(handler, InventorySorter.BY_NAME, Collections.emptySet());
+
+		assertTrue(handler.writtenSlots.isEmpty());
+	}
+
+	@Test
+	public void onlySlotsThatChangeAreWritten() {
+		WriteRecordingHandler handler = new WriteRecordingHandler(new ItemStack(Items.STONE, 64), new ItemStack(Items.DIAMOND, 64), new ItemStack(Items.DIAMOND, 64), ItemStack.EMPTY);
+
+		InventorySorter.sortHandler(handler, InventorySorter.BY_NAME, Collections.emptySet());
+
+		assertEquals(handler.writtenSlots, Arrays.asList(0, 2));
+		assertTrue(ItemStack.areItemStacksEqual(handler.getStackInSlot(0), new ItemStack(Items.DIAMOND, 64)));
+		assertTrue(ItemStack.areItemStacksEqual(handler.getStackInSlot(1), new ItemStack(Items.DIAMOND, 64)));
+		assertTrue(ItemStack.areItemStacksEqual(handler.getStackInSlot(2), new ItemStack(Items.STONE, 64)));
+		assertTrue(handler.getStackInSlot(3).isEmpty());
+	}
+
+	@Test
+	public void noSortSlotsAreNotWritten() {
+		WriteRecordingHandler handler = new WriteRecordingHandler(new ItemStack(Items.STONE, 64), new ItemStack(Items.DIAMOND, 64), ItemStack.EMPTY);
+
+		InventorySorter.sortHandler(handler, InventorySorter.BY_NAME, Collections.singleton(0));
+
+		assertTrue(handler.writtenSlots.isEmpty());
+		assertTrue(ItemStack.areItemStacksEqual(handler.getStackInSlot(0), new ItemStack(Items.STONE, 64)));
+	}
+
+	@Test
+	public void stacksOfSameKindAreMergedAndFreedSlotsEmptied() {
+		WriteRecordingHandler handler = new WriteRecordingHandler(new ItemStack(Items.DIAMOND, 30), ItemStack.EMPTY, new ItemStack(Items.DIAMOND, 30));
+
+		InventorySorter.sortHandler(handler, InventorySorter.BY_NAME, Collections.emptySet());
+
+		assertEquals(handler.getStackInSlot(0).getCount(), 60);
+		assertTrue(handler.getStackInSlot(1).isEmpty());
+		assertTrue(handler.getStackInSlot(2).isEmpty());
+		assertEquals(handler.writtenSlots.size(), 2);
+	}
+}
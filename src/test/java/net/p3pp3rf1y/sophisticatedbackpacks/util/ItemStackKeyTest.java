@@ -0,0 +1,42 @@
+package net.p3pp3rf1y.sophisticatedbackpacks.util;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.p3pp3rf1y.sophisticatedbackpacks.BootstrappedTestBase;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+
+public class ItemStackKeyTest extends BootstrappedTestBase {
+	@Test
+	public void keysOfStacksThatStackAreEqualRegardlessOfCount() {
+		ItemStackKey key = new ItemStackKey(new ItemStack(Items.DIAMOND, 1));
+		ItemStackKey otherKey = new ItemStackKey(new ItemStack(Items.DIAMOND, 64));
+
+		assertEquals(key, otherKey);
+		assertEquals(key.hashCode(), otherKey.hashCode());
+	}
+
+	@Test
+	public void keysOfDifferentItemsAreNotEqual() {
+		assertNotEquals(new ItemStackKey(new ItemStack(Items.DIAMOND)), new ItemStackKey(new ItemStack(Items.EMERALD)));
+	}
+
+	@Test
+	public void keysOfStacksWithDifferentTagsAreNotEqual() {
+		ItemStack taggedStack = new ItemStack(Items.DIAMOND);
+		taggedStack.getOrCreateTag().putString("test", "value");
+
+		assertNotEquals(new ItemStackKey(new ItemStack(Items.DIAMOND)), new ItemStackKey(taggedStack));
+	}
+
+	@Test
+	public void keyIsNotAffectedByLaterChangesToStack() {
+		ItemStack stack = new ItemStack(Items.DIAMOND);
+		ItemStackKey key = new ItemStackKey(stack);
+		stack.getOrCreateTag().putString("test", "value");
+
+		assertEquals(key, new ItemStackKey(new ItemStack(Items.DIAMOND)));
+	}
+}